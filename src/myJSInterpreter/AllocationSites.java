@@ -0,0 +1,93 @@
+package myJSInterpreter;
+
+import java.io.PrintStream;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Opt-in tracking of script objects by the source position that allocated them. Each tracked
+// object is held through a WeakReference, so a site's live count drops once the GC reclaims it.
+public class AllocationSites {
+    enum Kind { INSTANCE, ARRAY, ENVIRONMENT }
+
+    private static final class Site {
+        final Kind kind;
+        final int position;
+        final Set<Tracked> live = new HashSet<>();
+        long allocated = 0;
+        Site(Kind kind, int position) {
+            this.kind = kind;
+            this.position = position;
+        }
+    }
+    private static final class Tracked extends WeakReference<Object> {
+        final Site site;
+        Tracked(Object referent, Site site, ReferenceQueue<Object> queue) {
+            super(referent, queue);
+            this.site = site;
+        }
+    }
+
+    private final Map<Long, Site> sites = new HashMap<>();
+    private final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+
+    void record(Kind kind, int position, Object value) {
+        expunge();
+        Site site = sites.computeIfAbsent((long) kind.ordinal() << 32 | (position & 0xFFFFFFFFL),
+                key -> new Site(kind, position));
+        site.allocated++;
+        site.live.add(new Tracked(value, site, queue));
+    }
+
+    // Collects garbage first so the live columns reflect what is actually retained.
+    void dump(PrintStream out) {
+        System.gc();
+        expunge();
+        List<Site> ordered = new ArrayList<>(sites.values());
+        Map<Site, long[]> retained = new HashMap<>();
+        for (Site site : ordered) {
+            long[] totals = new long[2];
+            for (Tracked tracked : site.live) {
+                Object value = tracked.get();
+                if (value != null) {
+                    totals[0]++;
+                    totals[1] += estimateBytes(value);
+                }
+            }
+            retained.put(site, totals);
+        }
+        ordered.sort((a, b) -> Long.compare(retained.get(b)[1], retained.get(a)[1]));
+        out.println("  line:col     kind          live   allocated      ~bytes");
+        for (Site site : ordered) {
+            out.printf("  %-12s %-11s %8d %11d %11d%n",
+                    SourcePosition.line(site.position) + ":" + SourcePosition.column(site.position),
+                    site.kind.name().toLowerCase(), retained.get(site)[0], site.allocated, retained.get(site)[1]);
+        }
+    }
+
+    private void expunge() {
+        Reference<?> reference;
+        while ((reference = queue.poll()) != null) {
+            Tracked tracked = (Tracked) reference;
+            tracked.site.live.remove(tracked);
+        }
+    }
+
+    // Shallow sizes for a 64-bit JVM with compressed oops: object header and fields, plus the
+    // backing HashMap or array. Values held in slots are not counted.
+    private static long estimateBytes(Object value) {
+        if (value instanceof JSInstance) return 24 + hashMapBytes(((JSInstance) value).fieldCount());
+        if (value instanceof Environment) return 24 + hashMapBytes(((Environment) value).size());
+        if (value instanceof List) return 40 + 4L * ((List<?>) value).size();
+        return 16;
+    }
+    static long hashMapBytes(int entries) {
+        return 64 + 36L * entries;
+    }
+}
@@ -0,0 +1,44 @@
+package myJSInterpreter;
+
+// One activation of an async function. The body runs synchronously up to its first await; each
+// later step is a microtask scheduled when the awaited promise settles.
+final class AsyncCall {
+    private final Interpreter interpreter;
+    private final JSFunction function;
+    private final ResumableFrame frame;
+    final JSPromise promise;
+
+    AsyncCall(Interpreter interpreter, JSFunction function, ResumableFrame frame) {
+        this.interpreter = interpreter;
+        this.function = function;
+        this.frame = frame;
+        this.promise = new JSPromise(interpreter.eventLoop);
+    }
+
+    JSPromise start() {
+        step(null, null);
+        return promise;
+    }
+    private void resume(Object value, RuntimeError error) {
+        interpreter.callStack.push(function, function.position(), null);
+        try {
+            step(value, error);
+        } finally {
+            interpreter.callStack.pop();
+        }
+    }
+    private void step(Object value, RuntimeError error) {
+        try {
+            boolean suspended = error == null ? frame.resume(value) : frame.fail(error);
+            if (!suspended) {
+                promise.resolve(frame.result());
+                return;
+            }
+            JSPromise.resolved(interpreter, frame.suspendedOn()).whenSettled(this::resume);
+        } catch (ExecutionLimitError e) {
+            throw e;
+        } catch (RuntimeError e) {
+            promise.reject(e);
+        }
+    }
+}
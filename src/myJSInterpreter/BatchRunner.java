@@ -0,0 +1,109 @@
+package myJSInterpreter;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// --batch <dir>: runs every .js file under dir in one JVM, spread over a pool of script threads.
+// Each script gets a fresh context; its output goes to <script>.out next to it, and its errors
+// to <script>.err when there are any. The exit status is the worst of the scripts' statuses.
+final class BatchRunner {
+    private final ScriptCache cache = new ScriptCache();
+
+    static int run(Path directory, int jobs, PrintStream summary) throws IOException {
+        List<Path> scripts;
+        try (Stream<Path> files = Files.walk(directory)) {
+            scripts = files.filter(file -> file.toString().endsWith(".js") && Files.isRegularFile(file))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        BatchRunner runner = new BatchRunner();
+        ExecutorService pool = Executors.newFixedThreadPool(jobs, ScriptThreads::newThread);
+        List<Future<Integer>> results = new ArrayList<>();
+        try {
+            for (Path script : scripts) {
+                results.add(pool.submit(() -> runner.runScript(script)));
+            }
+            int worst = 0;
+            int passed = 0;
+            for (int i = 0; i < scripts.size(); i++) {
+                int status = join(results.get(i));
+                if (status == 0) {
+                    passed++;
+                } else {
+                    summary.println("FAIL " + status + " " + scripts.get(i));
+                }
+                worst = Math.max(worst, status);
+            }
+            summary.println(scripts.size() + " scripts, " + passed + " passed, "
+                    + (scripts.size() - passed) + " failed");
+            return worst;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // A script that fails outside the interpreter's own error handling, or whose files can't be
+    // written, gets status 70 and the failure in its .err file; the rest of the batch goes on.
+    // That includes overflowing the thread's stack, e.g. by parsing absurdly nested source.
+    private int runScript(Path script) {
+        Path errFile = script.resolveSibling(script.getFileName() + ".err");
+        try {
+            return execute(script, errFile);
+        } catch (IOException | RuntimeException | StackOverflowError e) {
+            try {
+                Files.writeString(errFile, e + "\n", StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                        StandardOpenOption.APPEND);
+            } catch (IOException ignored) {
+            }
+            return 70;
+        }
+    }
+    private int execute(Path script, Path errFile) throws IOException {
+        Path outFile = script.resolveSibling(script.getFileName() + ".out");
+        try (FileChannel out = FileChannel.open(outFile, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             FileChannel err = FileChannel.open(errFile, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            OutputSink errors = new ChannelOutputSink(err, StandardCharsets.UTF_8,
+                    ChannelOutputSink.DEFAULT_FLUSH_THRESHOLD);
+            JSContext context = new JSContext(new ChannelOutputSink(out, StandardCharsets.UTF_8,
+                    ChannelOutputSink.DEFAULT_FLUSH_THRESHOLD), errors);
+            try {
+                context.defineArguments(List.of());
+                List<Statement> statements = cache.compile(context, script);
+                if (statements != null) context.execute(statements);
+                return context.exitStatus();
+            } finally {
+                context.close();
+                errors.flush();
+            }
+        } finally {
+            if (Files.size(errFile) == 0) Files.delete(errFile);
+        }
+    }
+
+    private static int join(Future<Integer> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
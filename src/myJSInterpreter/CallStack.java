@@ -0,0 +1,63 @@
+package myJSInterpreter;
+
+import java.util.Arrays;
+import java.util.List;
+
+// Shadow stack of script-level calls: the callee, the packed position of its call site and the
+// caller's environment, which heap accounting walks as a root.
+// Only the owning interpreter thread writes; samplers on other threads read it racily and
+// must tolerate a frame that is being pushed or popped while they look.
+final class CallStack {
+    static final int MAX_DEPTH = 10_000;
+    private JSCallable[] callees = new JSCallable[64];
+    private int[] positions = new int[64];
+    private Environment[] callers = new Environment[64];
+    private volatile int depth = 0;
+
+    void push(JSCallable callee, int position, Environment caller) {
+        int top = depth;
+        if (top == callees.length) {
+            callees = Arrays.copyOf(callees, top * 2);
+            positions = Arrays.copyOf(positions, top * 2);
+            callers = Arrays.copyOf(callers, top * 2);
+        }
+        callees[top] = callee;
+        positions[top] = position;
+        callers[top] = caller;
+        depth = top + 1;
+    }
+    void pop() {
+        int top = depth - 1;
+        callees[top] = null;
+        callers[top] = null;
+        depth = top;
+    }
+    // Owner thread only.
+    void addCallers(List<Object> out) {
+        for (int i = 0; i < depth; i++) out.add(callers[i]);
+    }
+    int depth() {
+        return depth;
+    }
+    int topPosition() {
+        int top = depth;
+        return top == 0 ? 0 : positions[top - 1];
+    }
+    static String nameOf(JSCallable callee) {
+        if (callee instanceof JSFunction) return ((JSFunction) callee).name();
+        if (callee instanceof JSClass) return ((JSClass) callee).name;
+        if (callee instanceof NativeFunction) return ((NativeFunction) callee).name();
+        return callee.toString();
+    }
+    // Copies up to calleesOut.length frames, outermost first, and returns how many were copied.
+    int snapshot(JSCallable[] calleesOut, int[] positionsOut) {
+        JSCallable[] frames = callees;
+        int[] lines = positions;
+        int count = Math.min(Math.min(depth, calleesOut.length), Math.min(frames.length, lines.length));
+        for (int i = 0; i < count; i++) {
+            calleesOut[i] = frames[i];
+            positionsOut[i] = lines[i];
+        }
+        return count;
+    }
+}
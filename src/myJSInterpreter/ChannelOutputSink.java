@@ -0,0 +1,73 @@
+package myJSInterpreter;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.CoderResult;
+
+public class ChannelOutputSink implements OutputSink {
+    static final int DEFAULT_FLUSH_THRESHOLD = 1 << 16;
+    private static final int ENCODE_BUFFER = 8192;
+    private final WritableByteChannel channel;
+    private final CharsetEncoder encoder;
+    private final StringBuilder pending;
+    private ByteBuffer bytes;
+    private final int flushThreshold;
+
+    public ChannelOutputSink(WritableByteChannel channel, Charset charset, int flushThreshold) {
+        this.channel = channel;
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.flushThreshold = flushThreshold;
+        this.pending = new StringBuilder();
+    }
+    static ChannelOutputSink stdout() {
+        return new ChannelOutputSink(new FileOutputStream(FileDescriptor.out).getChannel(),
+                Charset.defaultCharset(), DEFAULT_FLUSH_THRESHOLD);
+    }
+
+    @Override
+    public void print(CharSequence text) {
+        pending.append(text);
+        if (pending.length() >= flushThreshold) flush();
+    }
+    @Override
+    public void println() {
+        pending.append('\n');
+        if (pending.length() >= flushThreshold) flush();
+    }
+    @Override
+    public void flush() {
+        if (pending.length() == 0) return;
+        if (bytes == null) bytes = ByteBuffer.allocateDirect(ENCODE_BUFFER);
+        CharBuffer chars = CharBuffer.wrap(pending);
+        try {
+            for (;;) {
+                CoderResult result = encoder.encode(chars, bytes, true);
+                if (result.isUnderflow()) result = encoder.flush(bytes);
+                drain();
+                if (result.isUnderflow()) break;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            encoder.reset();
+            pending.setLength(0);
+        }
+    }
+    private void drain() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+}
@@ -0,0 +1,25 @@
+package myJSInterpreter;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("myJSInterpreter.CompilePhase")
+@Label("Script Compile Phase")
+@Category("JavaScript Interpreter")
+@Description("Scanning and parsing (interleaved, reported as phase \"parse\") or resolving of one source or chunk")
+@StackTrace(false)
+final class CompilePhaseEvent extends jdk.jfr.Event {
+    @Label("Phase")
+    String phase;
+    @Label("Characters")
+    int characters;
+    @Label("Statements")
+    int statements;
+    @Label("Scan Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long scanTime;
+}
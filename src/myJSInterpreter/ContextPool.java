@@ -0,0 +1,41 @@
+package myJSInterpreter;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// Contexts that have already run the prelude. acquire() hands one out and release() resets it
+// to the post-prelude state, so a request pays for neither interpreter setup nor the prelude.
+public class ContextPool implements AutoCloseable {
+    private final BlockingQueue<JSContext> idle;
+    private final OutputSink defaultOutput;
+
+    public ContextPool(String prelude, int size, OutputSink defaultOutput) {
+        this.idle = new ArrayBlockingQueue<>(size);
+        this.defaultOutput = defaultOutput;
+        for (int i = 0; i < size; i++) {
+            JSContext context = new JSContext(defaultOutput);
+            if (prelude != null) context.prelude(prelude);
+            idle.add(context);
+        }
+    }
+
+    // Blocks until a context is free.
+    public JSContext acquire(OutputSink out) throws InterruptedException {
+        JSContext context = idle.take();
+        context.redirect(out);
+        return context;
+    }
+    public void release(JSContext context) {
+        context.reset();
+        context.redirect(defaultOutput);
+        idle.add(context);
+    }
+
+    @Override
+    public void close() {
+        JSContext context;
+        while ((context = idle.poll()) != null) {
+            context.close();
+        }
+    }
+}
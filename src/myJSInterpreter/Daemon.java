@@ -0,0 +1,173 @@
+package myJSInterpreter;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+// --daemon <socket>: a long-lived interpreter process that runs scripts sent over a Unix domain
+// socket, so each run skips JVM startup and reuses warm code and already-compiled scripts.
+//
+// Every message in either direction is a frame: one type byte, a 4-byte big-endian length, then
+// that many bytes, at most MAX_FRAME. The client sends 'P' (UTF-8 script path), optionally 'D'
+// (its working directory, which relative paths in the script resolve against), any number of 'A'
+// (one argument each) and then 'G'. The daemon answers with 'O' (stdout bytes) and 'E' (stderr
+// bytes) frames as the script runs, and finishes with 'X' carrying the exit status as a 4-byte
+// integer. A frame with a bad length ends the connection.
+final class Daemon {
+    static final byte PATH = 'P', DIRECTORY = 'D', ARGUMENT = 'A', GO = 'G', STDOUT = 'O', STDERR = 'E',
+            EXIT = 'X';
+    static final int MAX_FRAME = 1 << 20;
+
+    private final ScriptCache cache = new ScriptCache();
+
+    static void serve(Path socket) throws IOException {
+        Files.deleteIfExists(socket);
+        ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(UnixDomainSocketAddress.of(socket));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                Files.deleteIfExists(socket);
+            } catch (IOException ignored) {
+            }
+        }));
+        Daemon daemon = new Daemon();
+        for (;;) {
+            SocketChannel client = server.accept();
+            ScriptThreads.newThread(() -> daemon.handle(client)).start();
+        }
+    }
+
+    private void handle(SocketChannel client) {
+        try (client) {
+            Connection connection = new Connection(client);
+            DataInputStream in = new DataInputStream(Channels.newInputStream(client));
+            String path = null;
+            String directory = null;
+            List<String> arguments = new ArrayList<>();
+            for (;;) {
+                byte type = in.readByte();
+                byte[] payload = readPayload(in);
+                if (type == GO) break;
+                String text = new String(payload, StandardCharsets.UTF_8);
+                if (type == PATH) path = text;
+                else if (type == DIRECTORY) directory = text;
+                else if (type == ARGUMENT) arguments.add(text);
+            }
+            connection.exit(run(connection, path, directory, arguments));
+        } catch (IOException | UncheckedIOException e) {
+            // The client went away or sent a bad frame; nothing is left to report to.
+        }
+    }
+    static byte[] readPayload(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_FRAME) throw new IOException("Bad frame length " + length + ".");
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+        return payload;
+    }
+
+    private int run(Connection connection, String path, String directory, List<String> arguments)
+            throws IOException {
+        OutputSink out = new ChannelOutputSink(connection.channel(STDOUT),
+                StandardCharsets.UTF_8, ChannelOutputSink.DEFAULT_FLUSH_THRESHOLD);
+        OutputSink errors = new ChannelOutputSink(connection.channel(STDERR),
+                StandardCharsets.UTF_8, ChannelOutputSink.DEFAULT_FLUSH_THRESHOLD);
+        JSContext context = new JSContext(out, errors);
+        try {
+            if (path == null) {
+                errors.print("No script path in request.");
+                errors.println();
+                return 64;
+            }
+            Path file = Paths.get(path);
+            if (directory != null) {
+                Path workingDirectory = Paths.get(directory);
+                context.setWorkingDirectory(workingDirectory);
+                file = workingDirectory.resolve(file);
+            }
+            List<Statement> statements;
+            try {
+                statements = cache.compile(context, file);
+            } catch (NoSuchFileException e) {
+                errors.print("Can't find script " + path + ".");
+                errors.println();
+                return 66;
+            } catch (IOException e) {
+                errors.print("Can't read " + path + ": " + e.getMessage());
+                errors.println();
+                return 66;
+            }
+            if (statements == null) return context.exitStatus();
+            context.defineArguments(arguments);
+            context.execute(statements);
+            return context.exitStatus();
+        } catch (UncheckedIOException e) {
+            throw e;
+        } catch (RuntimeException | StackOverflowError e) {
+            // A failure outside the interpreter's own error handling still ends the request properly.
+            errors.print("Internal error: " + e);
+            errors.println();
+            return 70;
+        } finally {
+            context.close();
+            errors.flush();
+        }
+    }
+
+    // Frames written by the script thread's two sinks share one socket, so each frame is written whole.
+    private static final class Connection {
+        private final SocketChannel socket;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ByteBuffer header = ByteBuffer.allocate(5);
+
+        Connection(SocketChannel socket) {
+            this.socket = socket;
+        }
+        WritableByteChannel channel(byte type) {
+            return new WritableByteChannel() {
+                @Override
+                public int write(ByteBuffer source) throws IOException {
+                    int length = source.remaining();
+                    frame(type, source);
+                    return length;
+                }
+                @Override
+                public boolean isOpen() {
+                    return socket.isOpen();
+                }
+                @Override
+                public void close() {
+                }
+            };
+        }
+        void exit(int status) throws IOException {
+            frame(EXIT, ByteBuffer.allocate(4).putInt(0, status));
+        }
+        private void frame(byte type, ByteBuffer payload) throws IOException {
+            lock.lock();
+            try {
+                header.clear();
+                header.put(type).putInt(payload.remaining()).flip();
+                while (header.hasRemaining()) socket.write(header);
+                while (payload.hasRemaining()) socket.write(payload);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package myJSInterpreter;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+// --client <socket> script [args...]: sends one script to a running daemon and relays its output.
+// The framing is documented on Daemon; clients in other languages only need to follow it.
+final class DaemonClient {
+    private DaemonClient() {}
+
+    static int run(Path socket, Path script, List<String> arguments) throws IOException {
+        try (SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            channel.connect(UnixDomainSocketAddress.of(socket));
+            DataOutputStream out = new DataOutputStream(Channels.newOutputStream(channel));
+            frame(out, Daemon.PATH, script.toAbsolutePath().toString());
+            frame(out, Daemon.DIRECTORY, Paths.get("").toAbsolutePath().toString());
+            for (String argument : arguments) {
+                frame(out, Daemon.ARGUMENT, argument);
+            }
+            frame(out, Daemon.GO, "");
+            out.flush();
+            DataInputStream in = new DataInputStream(Channels.newInputStream(channel));
+            for (;;) {
+                byte type = in.readByte();
+                byte[] payload = Daemon.readPayload(in);
+                if (type == Daemon.EXIT) {
+                    System.out.flush();
+                    return ((payload[0] & 0xFF) << 24) | ((payload[1] & 0xFF) << 16)
+                            | ((payload[2] & 0xFF) << 8) | (payload[3] & 0xFF);
+                }
+                OutputStream target = type == Daemon.STDERR ? System.err : System.out;
+                target.write(payload);
+                target.flush();
+            }
+        }
+    }
+    private static void frame(DataOutputStream out, byte type, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Daemon.MAX_FRAME) throw new IOException("Request field too long for the daemon.");
+        out.writeByte(type);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+}
@@ -1,9 +1,14 @@
 package myJSInterpreter;
 import java.util.*;
+import java.util.function.Consumer;
 
 public class Environment {
     final Environment enclosing;
     private final Map<String, Object> values = new HashMap<>();
+    // Globals captured after a prelude; values then only holds what changed since, so a reset is a clear().
+    private Map<String, Object> baseline;
+    // Set on prelude closures of a pooled context, which requests must not modify.
+    boolean sealed;
 
     Environment() {
         enclosing = null;
@@ -15,19 +20,50 @@ public class Environment {
     void define(String name, Object value) {
         values.put(name, value);
     }
-    Object get(Token name) {
-        if (values.containsKey(name.lexeme)) {
-            return values.get(name.lexeme);
+    Object get(String name, int position) {
+        if (values.containsKey(name)) {
+            return values.get(name);
         }
-        if (enclosing != null) return enclosing.get(name);
-        throw new RuntimeError(name,
-                "Undefined variable '" + name.lexeme + "'.");
+        if (baseline != null && baseline.containsKey(name)) {
+            return baseline.get(name);
+        }
+        if (enclosing != null) return enclosing.get(name, position);
+        throw new RuntimeError(position,
+                "Undefined variable '" + name + "'.");
     }
     Object getAt(int distance, String name) {
-        return ancestor(distance).values.get(name);
+        Environment environment = ancestor(distance);
+        if (environment.baseline != null && !environment.values.containsKey(name)) {
+            return environment.baseline.get(name);
+        }
+        return environment.values.get(name);
+    }
+    void assignAt(int distance, String name, Object value) {
+        ancestor(distance).values.put(name, value);
+    }
+    int size() {
+        return values.size() + (baseline == null ? 0 : baseline.size());
+    }
+    // Shadowed baseline slots are visited too.
+    void forEachValue(Consumer<Object> action) {
+        if (baseline != null) baseline.values().forEach(action);
+        values.values().forEach(action);
+    }
+    void captureBaseline() {
+        Map<String, Object> merged = new HashMap<>();
+        if (baseline != null) merged.putAll(baseline);
+        merged.putAll(values);
+        baseline = merged;
+        values.clear();
+    }
+    void restoreBaseline() {
+        values.clear();
     }
-    void assignAt(int distance, Token name, Object value) {
-        ancestor(distance).values.put(name.lexeme, value);
+    Map<String, Object> snapshot() {
+        Map<String, Object> all = new HashMap<>();
+        if (baseline != null) all.putAll(baseline);
+        all.putAll(values);
+        return all;
     }
     Environment ancestor(int distance) {
         Environment environment = this;
@@ -36,16 +72,17 @@ public class Environment {
         }
         return environment;
     }
-    void assign(Token name, Object value) {
-        if (values.containsKey(name.lexeme)) {
-            values.put(name.lexeme, value);
+    void assign(String name, int position, Object value) {
+        if (values.containsKey(name) || baseline != null && baseline.containsKey(name)) {
+            if (sealed) throw new RuntimeError(position, "Can't modify '" + name + "' set up by the prelude.");
+            values.put(name, value);
             return;
         }
         if (enclosing != null) {
-            enclosing.assign(name, value);
+            enclosing.assign(name, position, value);
             return;
         }
-        throw new RuntimeError(name,
-                "Undefined variable '" + name.lexeme + "'.");
+        throw new RuntimeError(position,
+                "Undefined variable '" + name + "'.");
     }
 }
@@ -0,0 +1,69 @@
+package myJSInterpreter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ErrorReporter {
+    boolean hadError = false;
+    boolean hadRuntimeError = false;
+    private final List<String> pending;
+    // Where messages go when not buffered; null means System.err.
+    private final OutputSink errors;
+
+    ErrorReporter() {
+        this((OutputSink) null);
+    }
+    ErrorReporter(OutputSink errors) {
+        this.pending = null;
+        this.errors = errors;
+    }
+    private ErrorReporter(List<String> pending) {
+        this.pending = pending;
+        this.errors = null;
+    }
+    // Holds messages back until replayInto, so chunks parsed out of order still report in source order.
+    static ErrorReporter buffered() {
+        return new ErrorReporter(new ArrayList<>());
+    }
+
+    void error(int line, String message) {
+        report(line, "", message);
+    }
+    void error(Token token, String message) {
+        if (token.type == TokenType.EOF) {
+            report(token.line, " at end", message);
+        } else {
+            report(token.line, " at '" + token.lexeme + "'", message);
+        }
+    }
+    void error(int position, String lexeme, String message) {
+        report(SourcePosition.line(position), " at '" + lexeme + "'", message);
+    }
+    void runtimeError(RuntimeError error) {
+        String stack = error instanceof ThrownError ? ((ThrownError) error).stack() : "";
+        emit(error.getMessage() + "\n[line " + error.line() + "]" + stack);
+        hadRuntimeError = true;
+    }
+    void replayInto(ErrorReporter target) {
+        for (String message : pending) {
+            target.emit(message);
+        }
+        target.hadError |= hadError;
+        target.hadRuntimeError |= hadRuntimeError;
+    }
+    private void report(int line, String where, String message) {
+        emit("[line " + line + "] Error" + where + ": " + message);
+        hadError = true;
+    }
+    private void emit(String message) {
+        if (pending != null) {
+            pending.add(message);
+        } else if (errors != null) {
+            errors.print(message);
+            errors.println();
+            errors.flush();
+        } else {
+            System.err.println(message);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package myJSInterpreter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+// Task queues of one interpreter. Everything runs on the interpreter's own thread; the only
+// entry points for other threads are hold()/post(), used by operations that finish elsewhere.
+final class EventLoop {
+    private static final class Timer {
+        final double id;
+        final long due;
+        final Runnable task;
+        boolean cancelled;
+        Timer(double id, long due, Runnable task) {
+            this.id = id;
+            this.due = due;
+            this.task = task;
+        }
+    }
+
+    private final ArrayDeque<Runnable> microtasks = new ArrayDeque<>();
+    private final ArrayDeque<Runnable> macrotasks = new ArrayDeque<>();
+    // Ties on the due time keep insertion order because ids increase.
+    private final PriorityQueue<Timer> timers = new PriorityQueue<>((a, b) ->
+            a.due != b.due ? Long.compare(a.due, b.due) : Double.compare(a.id, b.id));
+    private final Map<Double, Timer> timersById = new HashMap<>();
+    private final List<JSPromise> rejections = new ArrayList<>();
+    private final ConcurrentLinkedQueue<Runnable> external = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger held = new AtomicInteger();
+    private volatile Thread owner;
+    private double nextTimerId = 1;
+    private long deadline = Long.MAX_VALUE;
+
+    // Waiting for timers counts against the context's time budget too.
+    void limit(long deadline) {
+        this.deadline = deadline;
+    }
+
+    void queueMicrotask(Runnable task) {
+        microtasks.add(task);
+    }
+    void queueMacrotask(Runnable task) {
+        macrotasks.add(task);
+    }
+    double setTimeout(Runnable task, double delay) {
+        long nanos = delay > 0 ? (long) (delay * 1_000_000) : 0;
+        Timer timer = new Timer(nextTimerId++, System.nanoTime() + nanos, task);
+        timers.add(timer);
+        timersById.put(timer.id, timer);
+        return timer.id;
+    }
+    void clearTimeout(double id) {
+        Timer timer = timersById.remove(id);
+        if (timer != null) timer.cancelled = true;
+    }
+    // Rejected promises that had no handler yet; reported if still unhandled after the microtask checkpoint.
+    void trackRejection(JSPromise promise) {
+        rejections.add(promise);
+    }
+
+    // Keeps the loop alive for an operation that will post() its completion from another thread.
+    void hold() {
+        held.incrementAndGet();
+    }
+    void post(Runnable task) {
+        external.add(task);
+        held.decrementAndGet();
+        Thread thread = owner;
+        if (thread != null) LockSupport.unpark(thread);
+    }
+
+    void drainMicrotasks() {
+        Runnable task;
+        while ((task = microtasks.poll()) != null) {
+            task.run();
+        }
+        if (!rejections.isEmpty()) {
+            List<JSPromise> rejected = new ArrayList<>(rejections);
+            rejections.clear();
+            for (JSPromise promise : rejected) {
+                if (!promise.handled()) throw promise.error();
+            }
+        }
+    }
+
+    // Runs tasks until there is nothing queued, no live timers and no held operations.
+    void run() {
+        owner = Thread.currentThread();
+        try {
+            drainMicrotasks();
+            for (;;) {
+                Runnable task = nextTask();
+                if (task == null) return;
+                task.run();
+                drainMicrotasks();
+            }
+        } finally {
+            owner = null;
+        }
+    }
+    private Runnable nextTask() {
+        for (;;) {
+            Runnable task = external.poll();
+            if (task != null) return task;
+            task = macrotasks.poll();
+            if (task != null) return task;
+            Timer timer = timers.peek();
+            while (timer != null && timer.cancelled) {
+                timers.poll();
+                timer = timers.peek();
+            }
+            long wait;
+            if (timer != null) {
+                wait = timer.due - System.nanoTime();
+                if (wait <= 0) {
+                    timers.poll();
+                    timersById.remove(timer.id);
+                    return timer.task;
+                }
+            } else if (held.get() > 0) {
+                wait = TimeUnit.MILLISECONDS.toNanos(100);
+            } else {
+                return null;
+            }
+            if (Thread.interrupted()) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            if (deadline != Long.MAX_VALUE) {
+                long left = deadline - System.nanoTime();
+                if (left <= 0) throw new ExecutionLimitError(0, "Time limit exceeded.");
+                wait = Math.min(wait, left);
+            }
+            LockSupport.parkNanos(this, wait);
+        }
+    }
+
+    void clear() {
+        microtasks.clear();
+        macrotasks.clear();
+        timers.clear();
+        timersById.clear();
+        rejections.clear();
+        external.clear();
+    }
+}
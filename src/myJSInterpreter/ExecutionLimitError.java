@@ -0,0 +1,9 @@
+package myJSInterpreter;
+
+// Raised when a context runs out of its step or time budget or is interrupted. Scripts can't
+// handle it: async functions and promise handlers let it through to the host.
+public class ExecutionLimitError extends RuntimeError {
+    ExecutionLimitError(int position, String message) {
+        super(position, message);
+    }
+}
@@ -3,6 +3,9 @@ package myJSInterpreter;
 import java.util.List;
 
 abstract class Expr {
+    // Scope distance filled in by the Resolver; globals stay unresolved.
+    static final int UNRESOLVED = -1;
+
     interface Visitor<R> {
         R visitAssignExpr(Assign expr);
         R visitIncDecExpr(IncDec expr);
@@ -11,18 +14,23 @@ abstract class Expr {
         R visitCallExpr(Call expr);
         R visitGetExpr(Get expr);
         R visitArrayGetExpr(ArrayGet expr);
+        R visitArraySetExpr(ArraySet expr);
         R visitSetExpr(Set expr);
         R visitThisExpr(This expr);
+        R visitSuperExpr(Super expr);
         R visitLogicalExpr(Logical expr);
         R visitGroupingExpr(Grouping expr);
         R visitLiteralExpr(Literal expr);
         R visitUnaryExpr(Unary expr);
         R visitTernaryExpr(Ternary expr);
         R visitVariableExpr(Variable expr);
+        R visitAwaitExpr(Await expr);
+        R visitYieldExpr(Yield expr);
     }
     public static class Assign extends Expr {
-        Assign(Token name, Expr value) {
+        Assign(String name, int position, Expr value) {
            this.name = name;
+           this.position = position;
            this.value = value;
         }
 
@@ -30,13 +38,16 @@ abstract class Expr {
     <R> R accept(Visitor<R> visitor) {
         return visitor.visitAssignExpr(this);
     }
-        final Token name;
+        final String name;
+        final int position;
         final Expr value;
+        int depth = UNRESOLVED;
     }
     public static class IncDec extends Expr {
-        IncDec(Token name, Token operator, Expr value) {
+        IncDec(String name, TokenType operator, int position, Expr value) {
            this.name = name;
            this.operator = operator;
+           this.position = position;
            this.value = value;
         }
 
@@ -44,12 +55,14 @@ abstract class Expr {
     <R> R accept(Visitor<R> visitor) {
         return visitor.visitIncDecExpr(this);
     }
-        final Token name;
-        final Token operator;
+        final String name;
+        final TokenType operator;
+        final int position;
         final Expr value;
     }
     public static class Array extends Expr {
-        Array(List<Expr> list) {
+        Array(int position, List<Expr> list) {
+           this.position = position;
            this.list = list;
         }
 
@@ -57,12 +70,14 @@ abstract class Expr {
     <R> R accept(Visitor<R> visitor) {
         return visitor.visitArrayExpr(this);
     }
+        final int position;
         final List<Expr> list;
     }
     public static class Binary extends Expr {
-        Binary(Expr left, Token operator, Expr right) {
+        Binary(Expr left, TokenType operator, int position, Expr right) {
            this.left = left;
            this.operator = operator;
+           this.position = position;
            this.right = right;
         }
 
@@ -71,13 +86,14 @@ abstract class Expr {
         return visitor.visitBinaryExpr(this);
     }
         final Expr left;
-        final Token operator;
+        final TokenType operator;
+        final int position;
         final Expr right;
     }
     public static class Call extends Expr {
-        Call(Expr callee, Token paren, List<Expr> arguments) {
+        Call(Expr callee, int position, List<Expr> arguments) {
            this.callee = callee;
-           this.paren = paren;
+           this.position = position;
            this.arguments = arguments;
         }
 
@@ -86,13 +102,14 @@ abstract class Expr {
         return visitor.visitCallExpr(this);
     }
         final Expr callee;
-        final Token paren;
+        final int position;
         final List<Expr> arguments;
     }
     public static class Get extends Expr {
-        Get(Expr object, Token name) {
+        Get(Expr object, String name, int position) {
            this.object = object;
            this.name = name;
+           this.position = position;
         }
 
     @Override
@@ -100,11 +117,12 @@ abstract class Expr {
         return visitor.visitGetExpr(this);
     }
         final Expr object;
-        final Token name;
+        final String name;
+        final int position;
     }
     public static class ArrayGet extends Expr {
-        ArrayGet(Token paren, Expr name, Expr index) {
-           this.paren = paren;
+        ArrayGet(int position, Expr name, Expr index) {
+           this.position = position;
            this.name = name;
            this.index = index;
         }
@@ -113,14 +131,32 @@ abstract class Expr {
     <R> R accept(Visitor<R> visitor) {
         return visitor.visitArrayGetExpr(this);
     }
-        final Token paren;
+        final int position;
+        final Expr name;
+        final Expr index;
+    }
+    public static class ArraySet extends Expr {
+        ArraySet(int position, Expr name, Expr index, Expr value) {
+           this.position = position;
+           this.name = name;
+           this.index = index;
+           this.value = value;
+        }
+
+    @Override
+    <R> R accept(Visitor<R> visitor) {
+        return visitor.visitArraySetExpr(this);
+    }
+        final int position;
         final Expr name;
         final Expr index;
+        final Expr value;
     }
     public static class Set extends Expr {
-        Set(Expr object, Token name, Expr value) {
+        Set(Expr object, String name, int position, Expr value) {
            this.object = object;
            this.name = name;
+           this.position = position;
            this.value = value;
         }
 
@@ -129,24 +165,42 @@ abstract class Expr {
         return visitor.visitSetExpr(this);
     }
         final Expr object;
-        final Token name;
+        final String name;
+        final int position;
         final Expr value;
     }
     public static class This extends Expr {
-        This(Token keyword) {
-           this.keyword = keyword;
+        This(int position) {
+           this.position = position;
         }
 
     @Override
     <R> R accept(Visitor<R> visitor) {
         return visitor.visitThisExpr(this);
     }
-        final Token keyword;
+        final int position;
+        int depth = UNRESOLVED;
+    }
+    // super.method, or super(...) for the superclass constructor.
+    public static class Super extends Expr {
+        Super(int position, String method) {
+           this.position = position;
+           this.method = method;
+        }
+
+    @Override
+    <R> R accept(Visitor<R> visitor) {
+        return visitor.visitSuperExpr(this);
+    }
+        final int position;
+        final String method;
+        int depth = UNRESOLVED;
     }
     public static class Logical extends Expr {
-        Logical(Expr left, Token operator, Expr right) {
+        Logical(Expr left, TokenType operator, int position, Expr right) {
            this.left = left;
            this.operator = operator;
+           this.position = position;
            this.right = right;
         }
 
@@ -155,7 +209,8 @@ abstract class Expr {
         return visitor.visitLogicalExpr(this);
     }
         final Expr left;
-        final Token operator;
+        final TokenType operator;
+        final int position;
         final Expr right;
     }
     public static class Grouping extends Expr {
@@ -181,8 +236,9 @@ abstract class Expr {
         final Object value;
     }
     public static class Unary extends Expr {
-        Unary(Token operator, Expr right) {
+        Unary(TokenType operator, int position, Expr right) {
            this.operator = operator;
+           this.position = position;
            this.right = right;
         }
 
@@ -190,7 +246,8 @@ abstract class Expr {
     <R> R accept(Visitor<R> visitor) {
         return visitor.visitUnaryExpr(this);
     }
-        final Token operator;
+        final TokenType operator;
+        final int position;
         final Expr right;
     }
     public static class Ternary extends Expr {
@@ -209,16 +266,46 @@ abstract class Expr {
         final Expr right;
     }
     public static class Variable extends Expr {
-        Variable(Token name) {
+        Variable(String name, int position) {
            this.name = name;
+           this.position = position;
         }
 
     @Override
     <R> R accept(Visitor<R> visitor) {
         return visitor.visitVariableExpr(this);
     }
-        final Token name;
+        final String name;
+        final int position;
+        int depth = UNRESOLVED;
+    }
+    public static class Await extends Expr {
+        Await(int position, Expr value) {
+           this.position = position;
+           this.value = value;
+        }
+
+    @Override
+    <R> R accept(Visitor<R> visitor) {
+        return visitor.visitAwaitExpr(this);
+    }
+        final int position;
+        final Expr value;
     }
 
     abstract <R> R accept(Visitor<R> visitor);
+    // value is null for a bare `yield;`.
+    public static class Yield extends Expr {
+        Yield(int position, Expr value) {
+           this.position = position;
+           this.value = value;
+        }
+
+    @Override
+    <R> R accept(Visitor<R> visitor) {
+        return visitor.visitYieldExpr(this);
+    }
+        final int position;
+        final Expr value;
+    }
 }
@@ -0,0 +1,148 @@
+package myJSInterpreter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+
+// A UTF-8 file read lazily as lines or as chunks of at most chunkSize characters, returned by the
+// readLines and readChunks natives as an iterator. Bytes are read into one large buffer and decoded only as the
+// script asks for more, so memory use doesn't depend on the file size. The file is closed when
+// the last piece has been read, or by close().
+final class FileStream extends JSIterator {
+    private static final int BUFFER = 1 << 18;
+    private final String path;
+    private final int chunkSize;
+    private final FileChannel channel;
+    private final ByteBuffer bytes = ByteBuffer.allocateDirect(BUFFER);
+    private final CharBuffer chars = CharBuffer.allocate(BUFFER);
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private boolean endOfInput;
+    private boolean finished;
+
+    private FileStream(String path, int chunkSize, FileChannel channel) {
+        this.path = path;
+        this.chunkSize = chunkSize;
+        this.channel = channel;
+        chars.limit(0);
+    }
+
+    // A chunkSize of 0 splits the file into lines instead.
+    static FileStream open(Interpreter interpreter, String path, int chunkSize) {
+        try {
+            return new FileStream(path, chunkSize, FileChannel.open(interpreter.resolvePath(path)));
+        } catch (NoSuchFileException e) {
+            throw interpreter.nativeError("Can't open " + path + ": no such file.");
+        } catch (IOException e) {
+            throw interpreter.nativeError("Can't open " + path + ": " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            throw interpreter.nativeError("Invalid path " + path + ".");
+        }
+    }
+    static String readAll(Interpreter interpreter, String path) {
+        try {
+            String text = Files.readString(interpreter.resolvePath(path));
+            interpreter.charge(40 + text.length(), interpreter.callStack.topPosition());
+            return text;
+        } catch (NoSuchFileException e) {
+            throw interpreter.nativeError("Can't read " + path + ": no such file.");
+        } catch (IOException e) {
+            throw interpreter.nativeError("Can't read " + path + ": " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            throw interpreter.nativeError("Invalid path " + path + ".");
+        }
+    }
+
+    @Override
+    Object advance(Interpreter interpreter) {
+        if (!channel.isOpen()) return DONE;
+        try {
+            String next = chunkSize == 0 ? readLine() : readChunk();
+            if (next == null) {
+                close();
+                return DONE;
+            }
+            interpreter.charge(40 + next.length(), interpreter.callStack.topPosition());
+            return next;
+        } catch (IOException e) {
+            close();
+            throw interpreter.nativeError("Can't read " + path + ": " + e.getMessage());
+        }
+    }
+    @Override
+    void close() {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    // Lines end at '\n' with an optional '\r' before it; a final line without one still counts.
+    private String readLine() throws IOException {
+        StringBuilder line = null;
+        for (;;) {
+            if (!chars.hasRemaining() && !fill()) return line == null ? null : line.toString();
+            char[] buffer = chars.array();
+            int start = chars.position();
+            int end = chars.limit();
+            for (int i = start; i < end; i++) {
+                if (buffer[i] == '\n') {
+                    chars.position(i + 1);
+                    int length = i - start;
+                    if (line == null) {
+                        if (length > 0 && buffer[i - 1] == '\r') length--;
+                        return new String(buffer, start, length);
+                    }
+                    line.append(buffer, start, length);
+                    if (line.length() > 0 && line.charAt(line.length() - 1) == '\r') line.setLength(line.length() - 1);
+                    return line.toString();
+                }
+            }
+            if (line == null) line = new StringBuilder(Math.max(16, (end - start) * 2));
+            line.append(buffer, start, end - start);
+            chars.position(end);
+        }
+    }
+    private String readChunk() throws IOException {
+        StringBuilder chunk = null;
+        for (;;) {
+            if (!chars.hasRemaining() && !fill()) return chunk == null ? null : chunk.toString();
+            int start = chars.position();
+            int take = Math.min(chars.remaining(), chunkSize - (chunk == null ? 0 : chunk.length()));
+            chars.position(start + take);
+            if (chunk == null && take == chunkSize) return new String(chars.array(), start, take);
+            if (chunk == null) chunk = new StringBuilder(chunkSize);
+            chunk.append(chars.array(), start, take);
+            if (chunk.length() == chunkSize) return chunk.toString();
+        }
+    }
+    // Decodes the next buffer's worth of characters; false once the file is used up.
+    private boolean fill() throws IOException {
+        chars.clear();
+        while (chars.position() == 0 && !finished) {
+            if (!endOfInput && channel.read(bytes) < 0) endOfInput = true;
+            bytes.flip();
+            CoderResult result = decoder.decode(bytes, chars, endOfInput);
+            bytes.compact();
+            if (endOfInput && result.isUnderflow()) {
+                decoder.flush(chars);
+                finished = true;
+            }
+        }
+        chars.flip();
+        return chars.hasRemaining();
+    }
+
+    @Override
+    public String toString() {
+        return "<file " + path + ">";
+    }
+}
@@ -0,0 +1,38 @@
+package myJSInterpreter;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+// An array that can never change, made by freeze(). Because every element is immutable too,
+// isolates share it by reference instead of cloning it.
+final class FrozenArray extends AbstractList<Object> implements RandomAccess {
+    private final Object[] elements;
+
+    FrozenArray(Object[] elements) {
+        this.elements = elements;
+    }
+    static FrozenArray freeze(Interpreter interpreter, List<Object> array) {
+        if (array instanceof FrozenArray) return (FrozenArray) array;
+        Object[] elements = new Object[array.size()];
+        for (int i = 0; i < elements.length; i++) {
+            Object element = array.get(i);
+            if (element instanceof List) {
+                element = freeze(interpreter, interpreter.array(element));
+            } else if (element != null && !(element instanceof Double)
+                    && !(element instanceof String) && !(element instanceof Boolean)) {
+                throw interpreter.nativeError("Can't freeze an array holding " + element + ".");
+            }
+            elements[i] = element;
+        }
+        return new FrozenArray(elements);
+    }
+    @Override
+    public Object get(int index) {
+        return elements[index];
+    }
+    @Override
+    public int size() {
+        return elements.length;
+    }
+}
@@ -0,0 +1,21 @@
+package myJSInterpreter;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+@Name("myJSInterpreter.FunctionCall")
+@Label("Script Function Call")
+@Category("JavaScript Interpreter")
+@Threshold("1 ms")
+@StackTrace(false)
+final class FunctionCallEvent extends jdk.jfr.Event {
+    @Label("Function")
+    String function;
+    @Label("Declared At Line")
+    int line;
+    @Label("Arguments")
+    int arguments;
+}
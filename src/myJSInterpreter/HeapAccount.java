@@ -0,0 +1,138 @@
+package myJSInterpreter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Approximate heap usage of one context. Allocations are charged as the script makes them, but
+// charges only decide when to measure: live usage is measured by walking everything reachable
+// from the interpreter's roots, so garbage the script dropped is not held against it. Measuring
+// again only after charging half the live size keeps the walks amortized, like a GC's growth rule.
+// Values held only by queued tasks or suspended async frames are not reached and so not counted.
+// The off-heap storage of typed arrays counts too, except for mapped files.
+// A context and the workers it spawns each have an account, but they share one limit: every
+// measurement adds the interpreter's change in live size to a total kept across the group.
+final class HeapAccount {
+    private static final long MIN_INTERVAL = 256 * 1024;
+    final long limit;
+    private final AtomicLong total;
+    private final AtomicLong peak;
+    private long live;
+    private long charged;
+    private long interval = MIN_INTERVAL;
+
+    HeapAccount(long limit) {
+        this(limit, new AtomicLong(), new AtomicLong());
+    }
+    private HeapAccount(long limit, AtomicLong total, AtomicLong peak) {
+        this.limit = limit;
+        this.total = total;
+        this.peak = peak;
+    }
+    // An account for another interpreter that counts against the same limit.
+    HeapAccount share() {
+        return new HeapAccount(limit, total, peak);
+    }
+    // Takes this interpreter's live size back out of the total once it is done.
+    void release() {
+        total.addAndGet(-live);
+        live = 0;
+    }
+
+    // Returns true when a measurement is due.
+    boolean charge(long bytes) {
+        charged += bytes;
+        return charged >= interval;
+    }
+    // Returns the live size of the whole group, with this interpreter's part measured just now.
+    long measure(List<Object> roots) {
+        long measured = reachableBytes(roots);
+        long group = total.addAndGet(measured - live);
+        live = measured;
+        peak.accumulateAndGet(group, Math::max);
+        charged = 0;
+        interval = Math.max(MIN_INTERVAL, live / 2);
+        if (limit != Long.MAX_VALUE) {
+            interval = Math.min(interval, Math.max(limit - group, limit / 32));
+        }
+        return group;
+    }
+    // A block too large to wait for the next measurement, checked against the group's live size
+    // just measured before it is made. False when it doesn't fit under the limit.
+    boolean admit(long group, long bytes) {
+        if (group + bytes > limit) return false;
+        peak.accumulateAndGet(group + bytes, Math::max);
+        charged += bytes;
+        return true;
+    }
+    long peak() {
+        return peak.get();
+    }
+
+    // Same size model as AllocationSites, plus the values held in slots and elements.
+    private static long reachableBytes(List<Object> roots) {
+        Set<Object> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        ArrayDeque<Object> pending = new ArrayDeque<>();
+        for (Object root : roots) {
+            if (root != null && seen.add(root)) pending.push(root);
+        }
+        long bytes = 0;
+        while (!pending.isEmpty()) {
+            Object value = pending.pop();
+            if (value instanceof String) {
+                bytes += 40 + ((String) value).length();
+            } else if (value instanceof Environment) {
+                Environment environment = (Environment) value;
+                bytes += 24 + AllocationSites.hashMapBytes(environment.size());
+                environment.forEachValue(slot -> follow(slot, seen, pending));
+                follow(environment.enclosing, seen, pending);
+            } else if (value instanceof JSInstance) {
+                JSInstance instance = (JSInstance) value;
+                bytes += 24 + AllocationSites.hashMapBytes(instance.fieldCount());
+                for (Object field : instance.fields().values()) follow(field, seen, pending);
+                follow(instance.klass(), seen, pending);
+            } else if (value instanceof List) {
+                List<?> elements = (List<?>) value;
+                bytes += 40 + 4L * elements.size();
+                for (Object element : elements) follow(element, seen, pending);
+            } else if (value instanceof JSFunction) {
+                bytes += 24;
+                follow(((JSFunction) value).closure(), seen, pending);
+            } else if (value instanceof JSClass) {
+                bytes += 24 + AllocationSites.hashMapBytes(((JSClass) value).methods().size());
+                for (JSFunction method : ((JSClass) value).methods()) follow(method, seen, pending);
+                follow(((JSClass) value).superclass, seen, pending);
+            } else if (value instanceof JSCollection) {
+                JSCollection collection = (JSCollection) value;
+                OrderedTable table = collection.table;
+                bytes += 24 + table.bytes();
+                for (int i = 0; i < table.end(); i++) {
+                    if (!table.isLive(i)) continue;
+                    Object key = table.keyAt(i);
+                    if (!(key instanceof Double)) follow(key, seen, pending);
+                    if (collection.isMap()) follow(table.valueAt(i), seen, pending);
+                }
+            } else if (value instanceof JSGenerator) {
+                List<Object> environments = new ArrayList<>();
+                ((JSGenerator) value).addEnvironments(environments);
+                bytes += 40;
+                for (Object environment : environments) follow(environment, seen, pending);
+            } else if (value instanceof JSTypedArray) {
+                bytes += 40 + ((JSTypedArray) value).ownedBytes();
+            } else if (value instanceof JSPromise) {
+                bytes += 40;
+                follow(((JSPromise) value).value(), seen, pending);
+            } else if (!(value instanceof Boolean)) {
+                bytes += 16;
+            }
+        }
+        return bytes;
+    }
+    private static void follow(Object value, Set<Object> seen, ArrayDeque<Object> pending) {
+        if (value != null && seen.add(value)) pending.push(value);
+    }
+}
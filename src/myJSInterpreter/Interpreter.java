@@ -1,93 +1,419 @@
 package myJSInterpreter;
 
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class Interpreter implements Expr.Visitor<Object>, Statement.Visitor<Object> {
     final Environment globalEnv = new Environment();
     private Environment currentEnv = globalEnv;
-    private final Map<Expr, Integer> locals = new HashMap<>();
-    Interpreter() {
-        globalEnv.define("clock", new JSCallable() {
-            @Override
-            public int arity() { return 0; }
-            @Override
-            public Object call(Interpreter interpreter,
-                               List<Object> arguments) {
-                return (double)System.currentTimeMillis() / 1000.0;
+    private OutputSink out;
+    // Relative paths given to the file natives resolve against this; null means the process's own.
+    Path directory;
+    private final ErrorReporter reporter;
+    final CallStack callStack = new CallStack();
+    final EventLoop eventLoop = new EventLoop();
+    // Top-level functions and classes run so far, replayed into isolates created by spawn.
+    final List<Statement> declarations = new ArrayList<>();
+    // Globals provided by Java, looked up by name when a snapshot is restored.
+    final Map<String, Object> builtins = new HashMap<>();
+    private int baselineDeclarations = 0;
+    // Arrays reachable from the baseline, which a reset can't restore and so may not be modified.
+    private final Set<Object> sealedArrays = Collections.newSetFromMap(new IdentityHashMap<>());
+    final RuntimeMetrics metrics = RuntimeMetrics.ENABLED ? RuntimeMetrics.register() : null;
+    AllocationSites allocationSites;
+    private final StringBuilder numberText = new StringBuilder(32);
+    // Execution budget. Loop back-edges and function entries only decrement countdown; the limits
+    // and the interrupt flag are looked at once per chunk of steps. stepsUsed is shared with the
+    // isolates this interpreter spawns, so their steps count against the same limit.
+    private static final int CHECK_INTERVAL = 1 << 12;
+    private long stepLimit = Long.MAX_VALUE;
+    private long timeLimitNanos = 0;
+    private AtomicLong stepsUsed = new AtomicLong();
+    private long deadline;
+    private int chunk;
+    private int countdown;
+    private volatile boolean interruptRequested;
+    private volatile Thread runner;
+    private HeapAccount heap;
+    // Isolates spawned from this interpreter that haven't finished; they are interrupted with it
+    // and when its run ends. isolated is set on the isolates themselves.
+    final Set<Interpreter> isolates = ConcurrentHashMap.newKeySet();
+    boolean isolated;
+    Interpreter(OutputSink out, ErrorReporter reporter) {
+        this.out = out;
+        this.reporter = reporter;
+        defineNative("clock", 0, (interpreter, arguments) ->
+                (double)System.currentTimeMillis() / 1000.0);
+        defineNative("sleep", 1, (interpreter, arguments) -> {
+            interpreter.sleep((long) interpreter.number(arguments.get(0)));
+            return null;
+        });
+        defineNative("readLines", 1, (interpreter, arguments) ->
+                FileStream.open(interpreter, interpreter.string(arguments.get(0)), 0));
+        defineNative("readChunks", 2, (interpreter, arguments) -> {
+            double size = interpreter.number(arguments.get(1));
+            if (size < 1 || size > Integer.MAX_VALUE || size != Math.floor(size)) {
+                throw interpreter.nativeError("Chunk size must be a positive integer.");
+            }
+            return FileStream.open(interpreter, interpreter.string(arguments.get(0)), (int) size);
+        });
+        defineNative("readAll", 1, (interpreter, arguments) ->
+                FileStream.readAll(interpreter, interpreter.string(arguments.get(0))));
+        defineNative("range", 3, (interpreter, arguments) -> {
+            double step = interpreter.number(arguments.get(2));
+            if (step == 0 || step != step) throw interpreter.nativeError("Range step must be a non-zero number.");
+            return new JSIterator.Range(interpreter.number(arguments.get(0)), interpreter.number(arguments.get(1)), step);
+        });
+        defineNative("iterate", 1, (interpreter, arguments) ->
+                JSIterator.of(interpreter, arguments.get(0), callStack.topPosition()));
+        defineNative("setTimeout", 2, (interpreter, arguments) -> {
+            JSCallable callback = interpreter.callable(arguments.get(0));
+            int position = callStack.topPosition();
+            return eventLoop.setTimeout(() -> call(callback, new ArrayList<>(), position),
+                    interpreter.number(arguments.get(1)));
+        });
+        defineNative("clearTimeout", 1, (interpreter, arguments) -> {
+            eventLoop.clearTimeout(interpreter.number(arguments.get(0)));
+            return null;
+        });
+        defineBuiltin("Promise", new JSPromise.Constructor());
+        defineNative("spawn", 2, (interpreter, arguments) ->
+                Isolate.spawn(interpreter, arguments.get(0), arguments.get(1)));
+        defineNative("freeze", 1, (interpreter, arguments) ->
+                FrozenArray.freeze(interpreter, interpreter.array(arguments.get(0))));
+        defineBuiltin("JSON", new Json());
+        defineBuiltin("Map", new JSCollection.Constructor(true));
+        defineBuiltin("Set", new JSCollection.Constructor(false));
+        defineBuiltin("Float64Array", new JSTypedArray.Constructor(JSTypedArray.Kind.FLOAT64));
+        defineBuiltin("Int32Array", new JSTypedArray.Constructor(JSTypedArray.Kind.INT32));
+    }
+
+    void defineNative(String name, int arity, NativeFunction.Body body) {
+        defineBuiltin(name, new NativeFunction(name, arity, body));
+    }
+    void defineBuiltin(String name, Object value) {
+        builtins.put(name, value);
+        globalEnv.define(name, value);
+    }
+    // Errors raised by natives point at the call that invoked them.
+    RuntimeError nativeError(String message) {
+        return new RuntimeError(callStack.topPosition(), message);
+    }
+    double number(Object value) {
+        if (value instanceof Double) return (double) value;
+        throw nativeError("Expected a number but got " + stringify(value) + ".");
+    }
+    String string(Object value) {
+        if (value instanceof String) return (String) value;
+        throw nativeError("Expected a string but got " + stringify(value) + ".");
+    }
+    JSCallable callable(Object value) {
+        if (value instanceof JSCallable) return (JSCallable) value;
+        throw nativeError("Expected a function but got " + stringify(value) + ".");
+    }
+    @SuppressWarnings("unchecked")
+    List<Object> array(Object value) {
+        if (value instanceof List) return (List<Object>) value;
+        throw nativeError("Expected an array but got " + stringify(value) + ".");
+    }
+    // The script-visible value of an error, as passed to rejection handlers and catch blocks:
+    // what was thrown, or the message of an error the interpreter raised itself.
+    Object errorValue(RuntimeError error) {
+        return error instanceof ThrownError ? ((ThrownError) error).value : error.getMessage();
+    }
+    RuntimeError stackOverflow(int position) {
+        return new ThrownError(this, position, "Maximum call stack size exceeded.");
+    }
+    RuntimeError rejection(Object reason) {
+        return new ThrownError(this, callStack.topPosition(), reason);
+    }
+
+    Path resolvePath(String path) {
+        Path file = Path.of(path);
+        return directory == null ? file : directory.resolve(file);
+    }
+
+    OutputSink output() {
+        return out;
+    }
+    void redirect(OutputSink out) {
+        this.out = out;
+    }
+
+    // Makes the current globals the state reset() returns to. Objects and closures reachable from
+    // them are sealed, since a reset can't undo changes made to them.
+    void captureBaseline() {
+        Set<Object> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Object value : globalEnv.snapshot().values()) {
+            seal(value, seen);
+        }
+        globalEnv.captureBaseline();
+        baselineDeclarations = declarations.size();
+    }
+    private void seal(Object value, Set<Object> seen) {
+        if (value == null || value instanceof Double || value instanceof String
+                || value instanceof Boolean || !seen.add(value)) {
+            return;
+        }
+        if (value instanceof JSInstance) {
+            JSInstance instance = (JSInstance) value;
+            instance.sealed = true;
+            for (Object field : instance.fields().values()) seal(field, seen);
+        } else if (value instanceof List) {
+            sealedArrays.add(value);
+            for (Object element : (List<?>) value) seal(element, seen);
+        } else if (value instanceof JSCollection) {
+            JSCollection collection = (JSCollection) value;
+            collection.sealed = true;
+            OrderedTable table = collection.table;
+            for (int i = 0; i < table.end(); i++) {
+                if (!table.isLive(i)) continue;
+                seal(table.keyAt(i), seen);
+                if (collection.isMap()) seal(table.valueAt(i), seen);
             }
-            @Override
-            public String toString() { return "<native fn>"; }
+        } else if (value instanceof JSFunction) {
+            sealEnvironment(((JSFunction) value).closure(), seen);
+        } else if (value instanceof JSTypedArray) {
+            ((JSTypedArray) value).sealed = true;
+        } else if (value instanceof JSIterator) {
+            ((JSIterator) value).sealed = true;
+        } else if (value instanceof JSClass) {
+            for (JSFunction method : ((JSClass) value).methods()) seal(method, seen);
+            seal(((JSClass) value).superclass, seen);
+        }
+    }
+    private void sealEnvironment(Environment environment, Set<Object> seen) {
+        for (; environment != null && environment != globalEnv && seen.add(environment);
+             environment = environment.enclosing) {
+            environment.sealed = true;
+            for (Object value : environment.snapshot().values()) seal(value, seen);
+        }
+    }
+    void reset() {
+        interruptRequested = false;
+        eventLoop.clear();
+        globalEnv.restoreBaseline();
+        declarations.subList(baselineDeclarations, declarations.size()).clear();
+        currentEnv = globalEnv;
+    }
+    void trackAllocationSites() {
+        allocationSites = new AllocationSites();
+        defineNative("dumpAllocationSites", 0, (interpreter, arguments) -> {
+            out.flush();
+            allocationSites.dump(System.err);
+            return null;
         });
     }
 
+    void limitSteps(long steps) {
+        stepLimit = steps;
+    }
+    void limitTime(long millis) {
+        timeLimitNanos = millis * 1_000_000;
+    }
+    // Safe to call from any thread; the script stops at its next budget check or blocking native.
+    synchronized void interrupt() {
+        interruptRequested = true;
+        Thread thread = runner;
+        if (thread != null) thread.interrupt();
+        for (Interpreter isolate : isolates) isolate.interrupt();
+    }
+    boolean isInterrupted() {
+        return interruptRequested;
+    }
+    // Puts an isolate under this interpreter's budget: the same deadline, the same step counter and
+    // the same memory account, so workers draw on what the context has left rather than getting a
+    // fresh copy each. Called on this interpreter's thread.
+    void passBudgetTo(Interpreter isolate) {
+        isolate.deadline = deadline;
+        isolate.stepLimit = stepLimit;
+        isolate.stepsUsed = stepsUsed;
+        if (heap != null) isolate.heap = heap.share();
+    }
+    // Runs on the worker thread around an isolate's work.
+    void startIsolate() {
+        runner = Thread.currentThread();
+        startChunks();
+    }
+    synchronized void finishIsolate() {
+        stepsUsed.addAndGet(chunk - countdown);
+        if (heap != null) heap.release();
+        runner = null;
+        Thread.interrupted();
+    }
+    private void startBudget() {
+        deadline = timeLimitNanos > 0 ? System.nanoTime() + timeLimitNanos : Long.MAX_VALUE;
+        stepsUsed.set(0);
+        startChunks();
+    }
+    private void startChunks() {
+        eventLoop.limit(deadline);
+        chunk = (int) Math.min(CHECK_INTERVAL, Math.max(stepLimit - stepsUsed.get(), 1));
+        countdown = chunk;
+    }
+    // Blocks the script thread, but never past the time budget.
+    void sleep(long millis) {
+        long nanos = millis * 1_000_000;
+        boolean overrun = deadline != Long.MAX_VALUE && System.nanoTime() + nanos - deadline > 0;
+        if (overrun) nanos = Math.max(0, deadline - System.nanoTime());
+        try {
+            Thread.sleep(nanos / 1_000_000, (int) (nanos % 1_000_000));
+        } catch (InterruptedException e) {
+            throw new ExecutionLimitError(callStack.topPosition(), "Script interrupted.");
+        }
+        if (overrun) throw new ExecutionLimitError(callStack.topPosition(), "Time limit exceeded.");
+    }
+    // Accounting starts with the first call; Long.MAX_VALUE only tracks usage.
+    void limitMemory(long bytes) {
+        heap = new HeapAccount(bytes);
+    }
+    long peakMemory() {
+        return heap == null ? 0 : heap.peak();
+    }
+    // Charges an allocation of roughly this many bytes against the memory limit.
+    void charge(long bytes, int position) {
+        if (heap != null && heap.charge(bytes) && measureHeap() > heap.limit) {
+            throw new ExecutionLimitError(position, "Memory limit of " + heap.limit + " bytes exceeded.");
+        }
+    }
+    // For storage made in one large piece, such as a typed array's: small pieces are charged as
+    // usual, larger ones are measured against the limit before they are allocated.
+    void chargeBlock(long bytes, int position) {
+        if (heap == null) return;
+        if (bytes < heap.limit / 32) {
+            charge(bytes, position);
+        } else if (!heap.admit(measureHeap(), bytes)) {
+            throw new ExecutionLimitError(position, "Memory limit of " + heap.limit + " bytes exceeded.");
+        }
+    }
+    private long measureHeap() {
+        List<Object> roots = new ArrayList<>();
+        roots.add(globalEnv);
+        roots.add(currentEnv);
+        callStack.addCallers(roots);
+        long live = heap.measure(roots);
+        if (RuntimeMetrics.ENABLED) metrics.peakHeapBytes = heap.peak();
+        return live;
+    }
+    void tick(int position) {
+        if (--countdown <= 0) checkBudget(position);
+    }
+    private void checkBudget(int position) {
+        long used = stepsUsed.addAndGet(chunk);
+        if (interruptRequested) {
+            throw new ExecutionLimitError(position, "Script interrupted.");
+        }
+        if (deadline != Long.MAX_VALUE && System.nanoTime() - deadline > 0) {
+            throw new ExecutionLimitError(position, "Time limit exceeded.");
+        }
+        if (used >= stepLimit) {
+            throw new ExecutionLimitError(position, "Step limit of " + stepLimit + " exceeded.");
+        }
+        chunk = (int) Math.min(CHECK_INTERVAL, stepLimit - used);
+        countdown = chunk;
+    }
+
     void interpret(List<Statement> statements) {
+        runner = Thread.currentThread();
+        startBudget();
         try {
             for (Statement statement : statements) {
+                if (statement instanceof Statement.Function || statement instanceof Statement.Class) {
+                    declarations.add(statement);
+                }
                 execute(statement);
             }
+            eventLoop.run();
+            if (interruptRequested) throw new ExecutionLimitError(callStack.topPosition(), "Script interrupted.");
         } catch (RuntimeError error) {
-            JavaScript.runtimeError(error);
+            eventLoop.clear();
+            if (RuntimeMetrics.ENABLED) metrics.runtimeErrors++;
+            runtimeError(error);
+        } finally {
+            // What the run left behind in the globals, so the peak covers short runs too.
+            if (heap != null) measureHeap();
+            for (Interpreter isolate : isolates) isolate.interrupt();
+            runner = null;
+            if (interruptRequested) {
+                interruptRequested = false;
+                Thread.interrupted();
+            }
+        }
+    }
+    void declare(List<Statement> declarations) {
+        for (Statement declaration : declarations) {
+            execute(declaration);
+            this.declarations.add(declaration);
+        }
+    }
+    private void runtimeError(RuntimeError error) {
+        ScriptErrorEvent event = new ScriptErrorEvent();
+        if (event.isEnabled()) {
+            event.message = error.getMessage();
+            event.line = error.line();
+            event.commit();
         }
+        out.flush();
+        reporter.runtimeError(error);
     }
     @Override
     public Object visitBinaryExpr(Expr.Binary expr) {
         Object left = evaluate(expr.left);
         Object right = evaluate(expr.right);
-        switch(expr.operator.type) {
+        switch(expr.operator) {
             case MINUS:
+                checkIsNumbers(expr.position, left, right);
                 return (double) left - (double) right;
             case PLUS:
                 if(left instanceof Double && right instanceof Double) {
-                    String text = ((double) left + (double) right) + "";
-                    if (text.endsWith(".0")) {
-                        text = text.substring(0, text.length() - 2);
-                    }
-                    return Double.parseDouble(text);
+                    return (double) left + (double) right;
                 }
                 if(left instanceof String || right instanceof String) {
                     if (left instanceof Double) {
-                        String text = left.toString();
-                        if (text.endsWith(".0")) {
-                            text = text.substring(0, text.length() - 2);
-                        }
-                        return text + right;
+                        String text = (String) right;
+                        charge(64 + text.length(), expr.position);
+                        return NumberFormatter.append(new StringBuilder(text.length() + 24), (double) left)
+                                .append(text).toString();
                     }
                     if (right instanceof Double) {
-                        String text = right.toString();
-                        if (text.endsWith(".0")) {
-                            text = text.substring(0, text.length() - 2);
-                        }
-                        return left + text;
+                        String text = (String) left;
+                        charge(64 + text.length(), expr.position);
+                        return NumberFormatter.append(new StringBuilder(text.length() + 24).append(text), (double) right)
+                                .toString();
                     }
-                    return left.toString() + right.toString();
+                    String text = stringify(left) + stringify(right);
+                    charge(40 + text.length(), expr.position);
+                    return text;
                 }
-                throw new RuntimeError(expr.operator, "can't add these");
+                throw new RuntimeError(expr.position, "can't add these");
             case SLASH:
-                checkIsNumbers(expr.operator, left, right);
+                checkIsNumbers(expr.position, left, right);
                 if(Double.parseDouble(right.toString()) == 0) {
-                    throw new RuntimeError(expr.operator, "can't divide by zero");
+                    throw new RuntimeError(expr.position, "can't divide by zero");
                 }
                 return (double) left / (double) right;
             case STAR:
-                checkIsNumbers(expr.operator, left, right);
+                checkIsNumbers(expr.position, left, right);
                 return (double) left * (double) right;
             case MOD:
-                checkIsNumbers(expr.operator, left, right);
+                checkIsNumbers(expr.position, left, right);
                 if(Double.parseDouble(right.toString()) == 0) {
-                    throw new RuntimeError(expr.operator, "can't divide by zero");
+                    throw new RuntimeError(expr.position, "can't divide by zero");
                 }
                 return (double) left % (double) right;
             case GREATER:
-                checkIsNumbers(expr.operator, left, right);
+                checkIsNumbers(expr.position, left, right);
                 return (double) left > (double) right;
             case LESS:
-                checkIsNumbers(expr.operator, left, right);
+                checkIsNumbers(expr.position, left, right);
                 return (double) left < (double) right;
             case LESS_EQUAL:
-                checkIsNumbers(expr.operator, left, right);
+                checkIsNumbers(expr.position, left, right);
                 return (double) left <= (double) right;
             case GREATER_EQUAL:
-                checkIsNumbers(expr.operator, left, right);
+                checkIsNumbers(expr.position, left, right);
                 return (double) left >= (double) right;
             case EQUAL_EQUAL:
                 return isEqual(left,right);
@@ -102,39 +428,51 @@ public class Interpreter implements Expr.Visitor<Object>, Statement.Visitor<Obje
         Object left = evaluate(expr.left);
         Object right = evaluate(expr.right);
         if(left instanceof Boolean && right instanceof Boolean) {
-            if(expr.operator.type == TokenType.AND) {
+            if(expr.operator == TokenType.AND) {
                 return (boolean) left & (boolean) right;
             }
-            if(expr.operator.type == TokenType.OR) {
+            if(expr.operator == TokenType.OR) {
                 return (boolean) left | (boolean) right;
             }
         }
-        throw new RuntimeError(expr.operator, "can't evaluate this");
+        throw new RuntimeError(expr.position, "can't evaluate this");
     }
 
-    private void checkIsNumbers(Token operator, Object left, Object right) {
+    private void checkIsNumbers(int position, Object left, Object right) {
         if(left instanceof Double && right instanceof Double) {
             return;
         }
-        throw new RuntimeError(operator, "Non-compatible operands");
+        throw new RuntimeError(position, "Non-compatible operands");
     }
     private void execute(Statement stmt) {
+        if (RuntimeMetrics.ENABLED) metrics.statementsExecuted++;
         stmt.accept(this);
     }
-    void resolve(Expr expr, int depth) {
-        locals.put(expr, depth);
+    void execute(Statement stmt, Environment environment) {
+        Environment previous = this.currentEnv;
+        try {
+            this.currentEnv = environment;
+            execute(stmt);
+        } finally {
+            this.currentEnv = previous;
+        }
+    }
+    Object evaluate(Expr expr, Environment environment) {
+        Environment previous = this.currentEnv;
+        try {
+            this.currentEnv = environment;
+            return evaluate(expr);
+        } finally {
+            this.currentEnv = previous;
+        }
     }
 
-    private String stringify(Object value) {
+    String stringify(Object value) {
         if(value == null) {
             return "null";
         }
         if(value instanceof Double) {
-            String text = value.toString();
-            if (text.endsWith(".0")) {
-                text = text.substring(0, text.length() - 2);
-            }
-            return text;
+            return NumberFormatter.toString((double) value);
         }
         return value.toString();
     }
@@ -165,9 +503,12 @@ public class Interpreter implements Expr.Visitor<Object>, Statement.Visitor<Obje
     @Override
     public Object visitUnaryExpr(Expr.Unary expr) {
         Object right = evaluate(expr.right);
-        return switch (expr.operator.type) {
+        return switch (expr.operator) {
             case EMARK -> !isTruthy(right);
-            case MINUS -> -(double) right;
+            case MINUS -> {
+                if (!(right instanceof Double)) throw new RuntimeError(expr.position, "Operand must be a number.");
+                yield -(double) right;
+            }
             default -> null;
         };
     }
@@ -185,17 +526,16 @@ public class Interpreter implements Expr.Visitor<Object>, Statement.Visitor<Obje
 
     @Override
     public Object visitVariableExpr(Expr.Variable expr) {
-        return findVariable(expr.name, expr);
+        return findVariable(expr.name, expr.position, expr.depth);
     }
-    private Object findVariable(Token name, Expr expr) {
-        Integer distance = locals.get(expr);
-        if (distance != null) {
-            return currentEnv.getAt(distance, name.lexeme);
+    private Object findVariable(String name, int position, int depth) {
+        if (depth != Expr.UNRESOLVED) {
+            return currentEnv.getAt(depth, name);
         } else {
-            return globalEnv.get(name);
+            return globalEnv.get(name, position);
         }
     }
-    private boolean isTruthy(Object object) {
+    boolean isTruthy(Object object) {
         if (object instanceof Boolean) return (boolean)object;
         return true;
     }
@@ -209,7 +549,13 @@ public class Interpreter implements Expr.Visitor<Object>, Statement.Visitor<Obje
     @Override
     public Object visitPrintStmt(Statement.Print stmt) {
         Object value = evaluate(stmt.expression);
-        System.out.println(stringify(value));
+        if (value instanceof Double) {
+            numberText.setLength(0);
+            out.print(NumberFormatter.append(numberText, (double) value));
+        } else {
+            out.print(stringify(value));
+        }
+        out.println();
         return null;
     }
 
@@ -219,66 +565,80 @@ public class Interpreter implements Expr.Visitor<Object>, Statement.Visitor<Obje
         if (stmt.initializer != null) {
             value = evaluate(stmt.initializer);
         }
-        currentEnv.define(stmt.name.lexeme, value);
+        charge(36, stmt.position);
+        currentEnv.define(stmt.name, value);
         return null;
     }
     @Override
     public Object visitAssignExpr(Expr.Assign expr) {
         Object value = evaluate(expr.value);
-        Integer distance = locals.get(expr);
-        if (distance != null) {
-            currentEnv.assignAt(distance, expr.name, value);
+        assign(expr, currentEnv, value);
+        return value;
+    }
+    void assign(Expr.Assign expr, Environment environment, Object value) {
+        if (expr.depth != Expr.UNRESOLVED) {
+            Environment target = environment.ancestor(expr.depth);
+            if (target.sealed) {
+                throw new RuntimeError(expr.position, "Can't modify '" + expr.name + "' set up by the prelude.");
+            }
+            target.assignAt(0, expr.name, value);
         } else {
-            globalEnv.assign(expr.name, value);
+            globalEnv.assign(expr.name, expr.position, value);
         }
-        return value;
     }
 
     @Override
     public Object visitIncDecExpr(Expr.IncDec expr) {
         Object value = evaluate(expr.value);
-        Object current = currentEnv.get(expr.name);
+        Object current = currentEnv.get(expr.name, expr.position);
         if(current instanceof Double && value instanceof Double) {
-            switch(expr.operator.type) {
+            switch(expr.operator) {
                 case PLUSEQUAL, PLUSPLUS:
-                    currentEnv.assign(expr.name, (double) value + (double) current);
+                    currentEnv.assign(expr.name, expr.position, (double) value + (double) current);
                     break;
                 case MINUSEQUAL, MINUSMINUS:
-                    currentEnv.assign(expr.name, (double) current - (double) value);
+                    currentEnv.assign(expr.name, expr.position, (double) current - (double) value);
                     break;
                 case MODEQUAL:
-                    currentEnv.assign(expr.name, (double) current % (double) value);
+                    currentEnv.assign(expr.name, expr.position, (double) current % (double) value);
                     break;
                 case MULTIPLYEQUAL:
-                    currentEnv.assign(expr.name, (double) current * (double) value);
+                    currentEnv.assign(expr.name, expr.position, (double) current * (double) value);
                     break;
                 case DIVIDEEQUAL:
-                    currentEnv.assign(expr.name, (double) current / (double) value);
+                    currentEnv.assign(expr.name, expr.position, (double) current / (double) value);
                     break;
             }
             return null;
         }
         if(current instanceof String && value instanceof String) {
-            if(expr.operator.type == TokenType.PLUSEQUAL) {
-                currentEnv.assign(expr.name, (String) value + current);
+            if(expr.operator == TokenType.PLUSEQUAL) {
+                String text = (String) value + current;
+                charge(40 + text.length(), expr.position);
+                currentEnv.assign(expr.name, expr.position, text);
             }
             return null;
         }
-        throw new RuntimeError(expr.operator, "Invalid operation.");
+        throw new RuntimeError(expr.position, "Invalid operation.");
     }
 
     @Override
     public Object visitArrayExpr(Expr.Array expr) {
+        if (RuntimeMetrics.ENABLED) metrics.arrayAllocations++;
         List<Object> values = new ArrayList<>();
         for(Expr exprs: expr.list) {
             values.add(evaluate(exprs));
         }
+        if (allocationSites != null) {
+            allocationSites.record(AllocationSites.Kind.ARRAY, expr.position, values);
+        }
+        charge(40 + 4L * values.size(), expr.position);
         return values;
     }
 
     @Override
     public Void visitBlockStmt(Statement.Block stmt) {
-        executeBlock(stmt.statements, new Environment(currentEnv));
+        runBlock(stmt.statements, stmt.position);
         return null;
     }
     public void executeBlock(List<Statement> statements,
@@ -306,9 +666,62 @@ public class Interpreter implements Expr.Visitor<Object>, Statement.Visitor<Obje
     public Void visitWhileStmt(Statement.While stmt) {
         while (isTruthy(evaluate(stmt.condition))) {
             execute(stmt.body);
+            tick(stmt.position);
+        }
+        return null;
+    }
+    @Override
+    public Void visitForOfStmt(Statement.ForOf stmt) {
+        JSIterator iterator = JSIterator.of(this, evaluate(stmt.iterable), stmt.position);
+        if (RuntimeMetrics.ENABLED) metrics.environmentAllocations++;
+        charge(24 + AllocationSites.hashMapBytes(1), stmt.position);
+        Environment environment = new Environment(currentEnv);
+        try {
+            for (Object value = iterator.nextValue(this); value != JSIterator.DONE; value = iterator.nextValue(this)) {
+                bindLoopVariable(stmt, environment, value);
+                execute(stmt.body, environment);
+                tick(stmt.position);
+            }
+        } finally {
+            iterator.close();
+        }
+        return null;
+    }
+    // Budget and memory limits aren't catchable; finally blocks still run on the way out.
+    @Override
+    public Void visitTryStmt(Statement.Try stmt) {
+        try {
+            runBlock(stmt.body, stmt.position);
+        } catch (ExecutionLimitError e) {
+            throw e;
+        } catch (RuntimeError error) {
+            if (stmt.catchBody == null) throw error;
+            if (RuntimeMetrics.ENABLED) metrics.environmentAllocations++;
+            charge(24 + AllocationSites.hashMapBytes(1), stmt.position);
+            Environment environment = new Environment(currentEnv);
+            if (stmt.catchName != null) environment.define(stmt.catchName, errorValue(error));
+            executeBlock(stmt.catchBody, environment);
+        } finally {
+            if (stmt.finallyBody != null) runBlock(stmt.finallyBody, stmt.position);
         }
         return null;
     }
+    private void runBlock(List<Statement> statements, int position) {
+        if (RuntimeMetrics.ENABLED) metrics.environmentAllocations++;
+        charge(24 + AllocationSites.hashMapBytes(0), position);
+        executeBlock(statements, new Environment(currentEnv));
+    }
+    @Override
+    public Void visitThrowStmt(Statement.Throw stmt) {
+        throw new ThrownError(this, stmt.position, evaluate(stmt.value));
+    }
+    void bindLoopVariable(Statement.ForOf stmt, Environment environment, Object value) {
+        if (stmt.target == null) {
+            environment.define(stmt.name, value);
+        } else {
+            assign(stmt.target, environment, value);
+        }
+    }
     @Override
     public Object visitCallExpr(Expr.Call expr) {
         Object callee = evaluate(expr.callee);
@@ -317,41 +730,71 @@ public class Interpreter implements Expr.Visitor<Object>, Statement.Visitor<Obje
             arguments.add(evaluate(argument));
         }
         if (!(callee instanceof JSCallable function)) {
-            throw new RuntimeError(expr.paren,
+            throw new RuntimeError(expr.position,
                     "Can only call functions and classes.");
         }
+        return call(function, arguments, expr.position);
+    }
+    // Calls from natives and queued callbacks go through here too so they show on the call stack.
+    // Runaway recursion becomes a catchable script error, whether it hits the depth limit or runs
+    // out of Java stack first.
+    Object call(JSCallable function, List<Object> arguments, int position) {
         if (arguments.size() != function.arity()) {
-            throw new RuntimeError(expr.paren, "Expected " +
+            throw new RuntimeError(position, "Expected " +
                     function.arity() + " arguments but got " +
                     arguments.size() + ".");
         }
-        return function.call(this, arguments);
+        if (callStack.depth() >= CallStack.MAX_DEPTH) throw stackOverflow(position);
+        callStack.push(function, position, currentEnv);
+        try {
+            return function.call(this, arguments);
+        } catch (StackOverflowError e) {
+            throw stackOverflow(position);
+        } finally {
+            callStack.pop();
+        }
     }
     @Override
     public Void visitFunctionStmt(Statement.Function stmt) {
         JSFunction function = new JSFunction(stmt, currentEnv, false);
-        currentEnv.define(stmt.name.lexeme, function);
+        currentEnv.define(stmt.name, function);
         return null;
     }
     @Override
     public Void visitClassStmt(Statement.Class stmt) {
-        currentEnv.define(stmt.name.lexeme, null);
+        JSClass superclass = null;
+        if (stmt.superclass != null) {
+            Object value = evaluate(stmt.superclass);
+            if (!(value instanceof JSClass)) {
+                throw new RuntimeError(stmt.superclass.position, "Superclass must be a class.");
+            }
+            superclass = (JSClass) value;
+        }
+        currentEnv.define(stmt.name, null);
+        Environment environment = currentEnv;
+        if (superclass != null) {
+            environment = new Environment(currentEnv);
+            environment.define("super", superclass);
+        }
         Map<String, JSFunction> methods = new HashMap<>();
         for (Statement.Function method : stmt.methods) {
-            JSFunction function = new JSFunction(method, currentEnv, method.name.lexeme.equals("constructor"));
-            methods.put(method.name.lexeme, function);
+            JSFunction function = new JSFunction(method, environment, method.name.equals("constructor"));
+            methods.put(method.name, function);
         }
-        JSClass klass = new JSClass(stmt.name.lexeme, methods);
-        currentEnv.assign(stmt.name, klass);
+        JSClass klass = new JSClass(stmt.name, superclass, methods);
+        currentEnv.assign(stmt.name, stmt.position, klass);
         return null;
     }
     @Override
     public Object visitGetExpr(Expr.Get expr) {
         Object object = evaluate(expr.object);
         if (object instanceof JSInstance) {
-            return ((JSInstance) object).get(expr.name);
+            return ((JSInstance) object).get(expr.name, expr.position);
         }
-        throw new RuntimeError(expr.name,
+        if (object instanceof JSNativeObject) {
+            return ((JSNativeObject) object).get(this, expr.name, expr.position);
+        }
+        throw new RuntimeError(expr.position,
                 "Only instances have properties.");
     }
 
@@ -359,27 +802,74 @@ public class Interpreter implements Expr.Visitor<Object>, Statement.Visitor<Obje
     public Object visitArrayGetExpr(Expr.ArrayGet expr) {
         Object index = evaluate(expr.index);
         Object name = evaluate(expr.name);
+        if (name instanceof JSTypedArray) {
+            JSTypedArray array = (JSTypedArray) name;
+            return array.get(typedIndex(array, index, expr.position));
+        }
         if(index instanceof Double) {
             if((Double) index >= ((List<?>)name).size()) {
-                throw new RuntimeError(expr.paren, "Invalid index");
+                throw new RuntimeError(expr.position, "Invalid index");
             }
             if(Math.floor((Double) index) != (Double)index) {
-                throw new RuntimeError(expr.paren, "Invalid index");
+                throw new RuntimeError(expr.position, "Invalid index");
             }
             return ((List<?>)name).get((int) Math.floor((Double)index));
         }
-        throw new RuntimeError(expr.paren, "Invalid index");
+        throw new RuntimeError(expr.position, "Invalid index");
 
     }
 
+    @Override
+    public Object visitArraySetExpr(Expr.ArraySet expr) {
+        Object array = evaluate(expr.name);
+        Object index = evaluate(expr.index);
+        Object value = evaluate(expr.value);
+        if (array instanceof JSTypedArray) {
+            JSTypedArray typed = (JSTypedArray) array;
+            long at = typedIndex(typed, index, expr.position);
+            if (typed.isReadOnly()) throw new RuntimeError(expr.position, "Can't modify a read-only " + typed.kindName() + ".");
+            if (typed.sealed) {
+                throw new RuntimeError(expr.position, "Can't modify a " + typed.kindName() + " set up by the prelude.");
+            }
+            if (!(value instanceof Double)) throw new RuntimeError(expr.position, "Typed array elements must be numbers.");
+            typed.set(at, (double) value);
+            return value;
+        }
+        if (!(array instanceof List)) {
+            throw new RuntimeError(expr.position, "Only arrays can be indexed.");
+        }
+        if (array instanceof FrozenArray) throw new RuntimeError(expr.position, "Can't modify a frozen array.");
+        if (!sealedArrays.isEmpty() && sealedArrays.contains(array)) {
+            throw new RuntimeError(expr.position, "Can't modify an array set up by the prelude.");
+        }
+        @SuppressWarnings("unchecked")
+        List<Object> elements = (List<Object>) array;
+        if (!(index instanceof Double) || (double) index < 0 || (double) index >= elements.size()
+                || Math.floor((double) index) != (double) index) {
+            throw new RuntimeError(expr.position, "Invalid index");
+        }
+        elements.set((int) (double) index, value);
+        return value;
+    }
+    private static long typedIndex(JSTypedArray array, Object index, int position) {
+        if (!(index instanceof Double) || (double) index < 0 || (double) index >= array.length()
+                || Math.floor((double) index) != (double) index) {
+            throw new RuntimeError(position, "Invalid index");
+        }
+        return (long) (double) index;
+    }
     @Override
     public Object visitSetExpr(Expr.Set expr) {
         Object object = evaluate(expr.object);
         if (!(object instanceof JSInstance)) {
-            throw new RuntimeError(expr.name,
+            throw new RuntimeError(expr.position,
                     "Only instances have fields.");
         }
+        if (((JSInstance) object).sealed) {
+            throw new RuntimeError(expr.position, "Can't modify an object set up by the prelude.");
+        }
         Object value = evaluate(expr.value);
+        charge(36, expr.position);
         ((JSInstance)object).set(expr.name, value);
         return value;
     }
@@ -391,6 +881,25 @@ public class Interpreter implements Expr.Visitor<Object>, Statement.Visitor<Obje
     }
     @Override
     public Object visitThisExpr(Expr.This expr) {
-        return findVariable(expr.keyword, expr);
+        return findVariable("this", expr.position, expr.depth);
+    }
+    // "this" is bound one environment inside the one holding "super".
+    @Override
+    public Object visitSuperExpr(Expr.Super expr) {
+        JSClass superclass = (JSClass) currentEnv.getAt(expr.depth, "super");
+        JSInstance object = (JSInstance) currentEnv.getAt(expr.depth - 1, "this");
+        JSFunction method = superclass.findMethod(expr.method);
+        if (method == null) {
+            throw new RuntimeError(expr.position, "Undefined property '" + expr.method + "'.");
+        }
+        return method.bind(object);
+    }
+    @Override
+    public Object visitAwaitExpr(Expr.Await expr) {
+        throw new RuntimeError(expr.position, "Can't use 'await' outside an async function.");
+    }
+    @Override
+    public Object visitYieldExpr(Expr.Yield expr) {
+        throw new RuntimeError(expr.position, "Can't use 'yield' outside a generator function.");
     }
 }
\ No newline at end of file
@@ -0,0 +1,108 @@
+package myJSInterpreter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// spawn(fn, data): runs a top-level function in a fresh interpreter on a worker thread. The isolate
+// re-declares the program's top-level functions and classes, so it shares syntax trees with the
+// parent but none of its environments or objects. Data goes in and the result comes back by
+// structured clone; the caller gets a promise. The isolate runs under what is left of the parent's
+// budget, is interrupted with it, and prints through the parent's output. Workers can't spawn
+// workers of their own, since waiting on them would tie up more than one pool thread.
+final class Isolate {
+    private static final ExecutorService WORKERS = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), ScriptThreads::newThread);
+
+    private Isolate() {}
+
+    static JSPromise spawn(Interpreter parent, Object callee, Object data) {
+        if (parent.isolated) throw parent.nativeError("spawn can't be called inside a worker.");
+        if (!(callee instanceof JSFunction)
+                || parent.globalEnv.getAt(0, ((JSFunction) callee).name()) != callee) {
+            throw parent.nativeError("spawn needs a top-level function.");
+        }
+        String name = ((JSFunction) callee).name();
+        int position = parent.callStack.topPosition();
+        List<Statement> declarations = new ArrayList<>(parent.declarations);
+        Object message = StructuredClone.detach(parent, data);
+        JSPromise promise = new JSPromise(parent.eventLoop);
+        Interpreter isolate = new Interpreter(new ForwardedOutput(parent), new ErrorReporter());
+        isolate.isolated = true;
+        isolate.directory = parent.directory;
+        parent.passBudgetTo(isolate);
+        parent.isolates.add(isolate);
+        parent.eventLoop.hold();
+        WORKERS.execute(() -> {
+            Object result;
+            try {
+                result = run(isolate, declarations, name, message, position);
+            } catch (RuntimeError error) {
+                parent.eventLoop.post(() -> promise.reject(new RuntimeError(position, error.getMessage())));
+                return;
+            } catch (RuntimeException | Error e) {
+                parent.eventLoop.post(() -> promise.reject(new RuntimeError(position, "Worker failed: " + e)));
+                return;
+            } finally {
+                parent.isolates.remove(isolate);
+            }
+            parent.eventLoop.post(() -> promise.resolve(StructuredClone.attach(parent, result)));
+        });
+        return promise;
+    }
+
+    private static Object run(Interpreter isolate, List<Statement> declarations, String name, Object message,
+                              int position) {
+        isolate.startIsolate();
+        try {
+            isolate.declare(declarations);
+            JSCallable function = (JSCallable) isolate.globalEnv.getAt(0, name);
+            List<Object> arguments = new ArrayList<>(1);
+            arguments.add(StructuredClone.attach(isolate, message));
+            Object result = isolate.call(function, arguments, position);
+            isolate.eventLoop.run();
+            if (result instanceof JSPromise) {
+                JSPromise promise = (JSPromise) result;
+                if (promise.error() != null) throw promise.error();
+                if (promise.isPending()) throw new RuntimeError(position, "Worker finished without settling its promise.");
+                result = promise.value();
+            }
+            return StructuredClone.detach(isolate, result);
+        } finally {
+            isolate.output().flush();
+            isolate.finishIsolate();
+            if (RuntimeMetrics.ENABLED) isolate.metrics.unregister();
+        }
+    }
+
+    // Output printed by a worker, handed to the parent's sink on the parent's thread in the order it
+    // was printed. Output from a worker whose parent has stopped is dropped.
+    private static final class ForwardedOutput implements OutputSink {
+        private static final int THRESHOLD = 8192;
+        private final Interpreter parent;
+        private final StringBuilder buffer = new StringBuilder();
+
+        ForwardedOutput(Interpreter parent) {
+            this.parent = parent;
+        }
+        @Override
+        public void print(CharSequence text) {
+            buffer.append(text);
+        }
+        @Override
+        public void println() {
+            buffer.append('\n');
+            if (buffer.length() >= THRESHOLD) flush();
+        }
+        @Override
+        public void flush() {
+            if (buffer.length() == 0) return;
+            String text = buffer.toString();
+            buffer.setLength(0);
+            if (parent.isInterrupted()) return;
+            parent.eventLoop.hold();
+            parent.eventLoop.post(() -> parent.output().print(text));
+        }
+    }
+}
@@ -3,16 +3,28 @@ import java.util.*;
 
 public class JSClass implements JSCallable {
     final String name;
+    final JSClass superclass;
     private final Map<String, JSFunction> methods;
-    JSClass(String name, Map<String, JSFunction> methods) {
+    // Own methods over a copy of the superclass's table, built once when the class is created so
+    // that a lookup is one probe however deep the hierarchy is.
+    private final Map<String, JSFunction> table;
+    JSClass(String name, JSClass superclass, Map<String, JSFunction> methods) {
         this.name = name;
+        this.superclass = superclass;
         this.methods = methods;
+        if (superclass == null) {
+            this.table = methods;
+        } else {
+            this.table = new HashMap<>(superclass.table);
+            this.table.putAll(methods);
+        }
+    }
+    // Only the methods declared by this class; inherited ones belong to the superclass.
+    Collection<JSFunction> methods() {
+        return methods.values();
     }
     JSFunction findMethod(String name) {
-        if (methods.containsKey(name)) {
-            return methods.get(name);
-        }
-        return null;
+        return table.get(name);
     }
     @Override
     public String toString() {
@@ -21,8 +33,15 @@ public class JSClass implements JSCallable {
     @Override
     public Object call(Interpreter interpreter, List<Object> arguments) {
         JSInstance instance = new JSInstance(this);
+        if (interpreter.allocationSites != null) {
+            interpreter.allocationSites.record(AllocationSites.Kind.INSTANCE,
+                    interpreter.callStack.topPosition(), instance);
+        }
+        interpreter.charge(24 + AllocationSites.hashMapBytes(0), interpreter.callStack.topPosition());
         JSFunction initializer = findMethod("constructor");
+        if (RuntimeMetrics.ENABLED) interpreter.metrics.instanceCreations++;
         if (initializer != null) {
+            if (RuntimeMetrics.ENABLED) interpreter.metrics.environmentAllocations++;
             initializer.bind(instance).call(interpreter, arguments);
         }
         return instance;
@@ -0,0 +1,147 @@
+package myJSInterpreter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// The objects made by the Map and Set globals. Keys compare like JavaScript's SameValueZero:
+// numbers, strings and booleans by value, everything else by identity.
+public final class JSCollection implements JSNativeObject {
+    private final boolean isMap;
+    final OrderedTable table;
+    boolean sealed;
+
+    JSCollection(boolean isMap) {
+        this.isMap = isMap;
+        this.table = new OrderedTable(isMap);
+    }
+
+    boolean isMap() {
+        return isMap;
+    }
+    private List<Object> list(Interpreter interpreter, boolean keys, boolean values) {
+        List<Object> result = new ArrayList<>(table.size());
+        for (int i = 0; i < table.end(); i++) {
+            if (!table.isLive(i)) continue;
+            if (keys && values) {
+                List<Object> pair = new ArrayList<>(2);
+                pair.add(table.keyAt(i));
+                pair.add(table.valueAt(i));
+                result.add(pair);
+            } else {
+                result.add(keys ? table.keyAt(i) : table.valueAt(i));
+            }
+        }
+        interpreter.charge(40 + 4L * result.size() + (keys && values ? 48L * result.size() : 0),
+                interpreter.callStack.topPosition());
+        return result;
+    }
+    // Entries added by the callback are visited too, as in JavaScript.
+    private void forEach(Interpreter interpreter, JSCallable callback) {
+        int position = interpreter.callStack.topPosition();
+        table.pinned++;
+        try {
+            for (int i = 0; i < table.end(); i++) {
+                if (!table.isLive(i)) continue;
+                List<Object> arguments = new ArrayList<>(2);
+                if (isMap) {
+                    arguments.add(table.valueAt(i));
+                    arguments.add(table.keyAt(i));
+                } else {
+                    arguments.add(table.keyAt(i));
+                }
+                interpreter.call(callback, arguments, position);
+            }
+        } finally {
+            table.pinned--;
+        }
+    }
+    private void modify(Interpreter interpreter) {
+        if (sealed) throw interpreter.nativeError("Can't modify a " + (isMap ? "Map" : "Set") + " set up by the prelude.");
+    }
+    private void grow(Interpreter interpreter, long before) {
+        long after = table.bytes();
+        if (after != before) interpreter.charge(after - before, interpreter.callStack.topPosition());
+    }
+
+    @Override
+    public Object get(Interpreter interpreter, String name, int position) {
+        switch (name) {
+            case "size":
+                return (double) table.size();
+            case "has":
+                return new NativeFunction("has", 1, (in, arguments) -> table.contains(arguments.get(0)));
+            case "delete":
+                return new NativeFunction("delete", 1, (in, arguments) -> {
+                    modify(in);
+                    return table.remove(arguments.get(0));
+                });
+            case "clear":
+                return new NativeFunction("clear", 0, (in, arguments) -> {
+                    modify(in);
+                    table.clear();
+                    return null;
+                });
+            case "forEach":
+                return new NativeFunction("forEach", 1, (in, arguments) -> {
+                    forEach(in, in.callable(arguments.get(0)));
+                    return null;
+                });
+            case "values":
+                return new NativeFunction("values", 0, (in, arguments) -> list(in, !isMap, isMap));
+            case "keys":
+                return new NativeFunction("keys", 0, (in, arguments) -> list(in, true, false));
+        }
+        if (isMap) {
+            switch (name) {
+                case "get":
+                    return new NativeFunction("get", 1, (in, arguments) -> table.get(arguments.get(0)));
+                case "set":
+                    return new NativeFunction("set", 2, (in, arguments) -> {
+                        modify(in);
+                        long before = table.bytes();
+                        table.put(arguments.get(0), arguments.get(1));
+                        grow(in, before);
+                        return this;
+                    });
+                case "entries":
+                    return new NativeFunction("entries", 0, (in, arguments) -> list(in, true, true));
+            }
+        } else if (name.equals("add")) {
+            return new NativeFunction("add", 1, (in, arguments) -> {
+                modify(in);
+                long before = table.bytes();
+                table.put(arguments.get(0), null);
+                grow(in, before);
+                return this;
+            });
+        }
+        throw new RuntimeError(position, "Undefined property '" + name + "'.");
+    }
+    @Override
+    public String toString() {
+        return (isMap ? "Map(" : "Set(") + table.size() + ")";
+    }
+
+    // The globals Map and Set, called with no arguments.
+    static final class Constructor implements JSCallable {
+        private final boolean isMap;
+
+        Constructor(boolean isMap) {
+            this.isMap = isMap;
+        }
+        @Override
+        public Object call(Interpreter interpreter, List<Object> arguments) {
+            JSCollection collection = new JSCollection(isMap);
+            interpreter.charge(24 + collection.table.bytes(), interpreter.callStack.topPosition());
+            return collection;
+        }
+        @Override
+        public int arity() {
+            return 0;
+        }
+        @Override
+        public String toString() {
+            return "<native fn>";
+        }
+    }
+}
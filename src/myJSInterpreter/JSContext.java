@@ -0,0 +1,161 @@
+package myJSInterpreter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// One independent script runtime: its own globals, output sink, error state and metrics.
+// A context is used by one thread at a time; separate contexts can run concurrently.
+public class JSContext implements AutoCloseable {
+    final ErrorReporter reporter;
+    final Interpreter interpreter;
+
+    public JSContext() {
+        this(ChannelOutputSink.stdout());
+    }
+    public JSContext(OutputSink out) {
+        this(out, null);
+    }
+    // Error messages go to errors, or to System.err when it is null.
+    public JSContext(OutputSink out, OutputSink errors) {
+        this.reporter = new ErrorReporter(errors);
+        this.interpreter = new Interpreter(out, reporter);
+    }
+
+    public void run(String source) {
+        List<Statement> statements = compile(source);
+        if (statements == null) return;
+        execute(statements);
+    }
+    // Runs statements that were already compiled and resolved, possibly by another context.
+    void execute(List<Statement> statements) {
+        long start = System.nanoTime();
+        interpreter.interpret(statements);
+        if (RuntimeMetrics.ENABLED) interpreter.metrics.executeNanos += System.nanoTime() - start;
+    }
+
+    // Budgets apply to each run separately. Exceeding one ends the run with a runtime error (status 70).
+    public void limitSteps(long steps) {
+        interpreter.limitSteps(steps);
+    }
+    public void limitTime(long millis) {
+        interpreter.limitTime(millis);
+    }
+    // Caps the approximate heap held by this context's script values, measured by reachability;
+    // Long.MAX_VALUE only tracks usage for peakMemory().
+    public void limitMemory(long bytes) {
+        interpreter.limitMemory(bytes);
+    }
+    // Largest live heap measured so far, in bytes, or 0 when memory is not being tracked.
+    public long peakMemory() {
+        return interpreter.peakMemory();
+    }
+    // Stops the running script from another thread, like an exceeded budget.
+    public void interrupt() {
+        interpreter.interrupt();
+    }
+
+    // Runs the source on a new script thread (virtual where available) and returns it started.
+    public Thread start(String source) {
+        Thread thread = ScriptThreads.newThread(() -> {
+            try {
+                run(source);
+            } finally {
+                interpreter.output().flush();
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    // 65 for compile errors and 70 for runtime errors, like the command line.
+    public int exitStatus() {
+        if (reporter.hadError) return 65;
+        if (reporter.hadRuntimeError) return 70;
+        return 0;
+    }
+    void clearCompileErrors() {
+        reporter.hadError = false;
+    }
+
+    // Runs a library script whose definitions every later run starts from; see reset().
+    public void prelude(String source) {
+        run(source);
+        if (exitStatus() != 0) throw new IllegalArgumentException("Prelude failed with status " + exitStatus());
+        interpreter.captureBaseline();
+    }
+    // Drops everything since the prelude: globals, queued tasks and error state.
+    public void reset() {
+        interpreter.output().flush();
+        interpreter.reset();
+        reporter.hadError = false;
+        reporter.hadRuntimeError = false;
+    }
+    // Saves the current globals so restoreSnapshot() can stand in for running the prelude again.
+    public void saveSnapshot(Path file) throws IOException {
+        Snapshot.save(interpreter, file);
+    }
+    public void restoreSnapshot(Path file) throws IOException {
+        Snapshot.restore(interpreter, file);
+    }
+    public void defineArguments(List<String> arguments) {
+        interpreter.globalEnv.define("args", new ArrayList<Object>(arguments));
+    }
+    public void setWorkingDirectory(Path directory) {
+        interpreter.directory = directory;
+    }
+    public void redirect(OutputSink out) {
+        interpreter.output().flush();
+        interpreter.redirect(out);
+    }
+
+    List<Statement> compile(String source) {
+        RuntimeMetrics metrics = interpreter.metrics;
+        List<Statement> statements;
+        long start = System.nanoTime();
+        if (source.length() >= ParallelFrontEnd.THRESHOLD) {
+            statements = ParallelFrontEnd.parse(source, reporter, metrics);
+        } else {
+            CompilePhaseEvent event = new CompilePhaseEvent();
+            event.begin();
+            TokenScanner scanner = new TokenScanner(source, reporter);
+            TokenParser parser = new TokenParser(scanner, reporter);
+            statements = parser.parse();
+            event.end();
+            if (event.shouldCommit()) {
+                event.phase = "parse";
+                event.characters = source.length();
+                event.statements = statements.size();
+                event.scanTime = parser.scanNanos();
+                event.commit();
+            }
+            if (RuntimeMetrics.ENABLED) {
+                metrics.scanNanos += parser.scanNanos();
+                metrics.parseNanos += System.nanoTime() - start - parser.scanNanos();
+            }
+        }
+        if (reporter.hadError) return null;
+        start = System.nanoTime();
+        CompilePhaseEvent event = new CompilePhaseEvent();
+        event.begin();
+        Resolver resolver = new Resolver(reporter);
+        resolver.resolve(statements);
+        event.end();
+        if (event.shouldCommit()) {
+            event.phase = "resolve";
+            event.characters = source.length();
+            event.statements = statements.size();
+            event.commit();
+        }
+        if (RuntimeMetrics.ENABLED) metrics.resolveNanos += System.nanoTime() - start;
+        if (reporter.hadError) return null;
+        return statements;
+    }
+
+    @Override
+    public void close() {
+        interpreter.output().flush();
+        if (RuntimeMetrics.ENABLED) interpreter.metrics.unregister();
+    }
+}
@@ -18,11 +18,43 @@ public class JSFunction implements JSCallable {
 
     @Override
     public Object call(Interpreter interpreter,List<Object> arguments) {
+        interpreter.tick(declaration.position);
+        if (RuntimeMetrics.ENABLED) {
+            interpreter.metrics.functionCalls++;
+            interpreter.metrics.environmentAllocations++;
+        }
+        FunctionCallEvent event = new FunctionCallEvent();
+        event.begin();
+        try {
+            return invoke(interpreter, arguments);
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.function = declaration.name;
+                event.line = SourcePosition.line(declaration.position);
+                event.arguments = arguments.size();
+                event.commit();
+            }
+        }
+    }
+    private Object invoke(Interpreter interpreter, List<Object> arguments) {
         Environment environment = new Environment(closure);
+        if (interpreter.allocationSites != null) {
+            interpreter.allocationSites.record(AllocationSites.Kind.ENVIRONMENT,
+                    interpreter.callStack.topPosition(), environment);
+        }
+        interpreter.charge(24 + AllocationSites.hashMapBytes(declaration.params.size()), declaration.position);
         for (int i = 0; i < declaration.params.size(); i++) {
-            environment.define(declaration.params.get(i).lexeme,
+            environment.define(declaration.params.get(i).name,
                     arguments.get(i));
         }
+        if (declaration.isGenerator) {
+            return new JSGenerator(interpreter, this, new ResumableFrame(interpreter, declaration.body, environment));
+        }
+        if (declaration.isAsync) {
+            return new AsyncCall(interpreter, this,
+                    new ResumableFrame(interpreter, declaration.body, environment)).start();
+        }
         try {
             interpreter.executeBlock(declaration.body, environment);
         } catch (Return returnValue) {
@@ -32,12 +64,27 @@ public class JSFunction implements JSCallable {
         if (isInitializer) return closure.getAt(0, "this");
         return null;
     }
+    String name() {
+        return declaration.name;
+    }
+    Statement.Function declaration() {
+        return declaration;
+    }
+    boolean isInitializer() {
+        return isInitializer;
+    }
+    Environment closure() {
+        return closure;
+    }
+    int position() {
+        return declaration.position;
+    }
     @Override
     public int arity() {
         return declaration.params.size();
     }
     @Override
     public String toString() {
-        return "<fn " + declaration.name.lexeme + ">";
+        return "<fn " + declaration.name + ">";
     }
 }
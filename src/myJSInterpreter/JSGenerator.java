@@ -0,0 +1,88 @@
+package myJSInterpreter;
+
+import java.util.List;
+
+// One activation of a generator function. The body is a ResumableFrame stepped on the caller's
+// thread: each value the script pulls runs it up to the next yield, so a suspended generator holds
+// only its cursors and environments, never a thread of its own.
+final class JSGenerator extends JSIterator {
+    private final Interpreter interpreter;
+    private final JSFunction function;
+    private final ResumableFrame frame;
+    private boolean started;
+    private boolean running;
+    private boolean finished;
+
+    JSGenerator(Interpreter interpreter, JSFunction function, ResumableFrame frame) {
+        this.interpreter = interpreter;
+        this.function = function;
+        this.frame = frame;
+    }
+
+    @Override
+    Object advance(Interpreter interpreter) {
+        return step(interpreter, null);
+    }
+    // The sent value becomes the result of the yield the body is suspended on; the first step has
+    // no yield to complete, so its value is dropped.
+    private Object step(Interpreter interpreter, Object sent) {
+        if (finished) return DONE;
+        if (running) throw interpreter.nativeError("Generator is already running.");
+        // Generators nested through for-of recurse without going through Interpreter.call.
+        if (interpreter.callStack.depth() >= CallStack.MAX_DEPTH) throw interpreter.stackOverflow(function.position());
+        running = true;
+        interpreter.callStack.push(function, function.position(), null);
+        try {
+            boolean suspended = frame.resume(started ? sent : null);
+            started = true;
+            if (suspended) return frame.suspendedOn();
+            finished = true;
+            return DONE;
+        } catch (RuntimeException e) {
+            finished = true;
+            frame.abandon();
+            throw e;
+        } catch (StackOverflowError e) {
+            RuntimeError error = interpreter.stackOverflow(function.position());
+            finished = true;
+            frame.abandon();
+            throw error;
+        } finally {
+            interpreter.callStack.pop();
+            running = false;
+        }
+    }
+    // Runs the finally blocks the body is suspended inside, as a return at the yield would.
+    @Override
+    void close() {
+        if (finished || running) return;
+        finished = true;
+        if (!started) return;
+        running = true;
+        interpreter.callStack.push(function, function.position(), null);
+        try {
+            frame.close();
+        } finally {
+            interpreter.callStack.pop();
+            running = false;
+        }
+    }
+    void addEnvironments(List<Object> out) {
+        if (!finished) frame.addEnvironments(out);
+    }
+
+    @Override
+    public Object get(Interpreter interpreter, String name, int position) {
+        if (name.equals("send") && !sealed) {
+            return new NativeFunction("send", 1, (in, arguments) -> {
+                Object value = step(in, arguments.get(0));
+                return value == DONE ? null : value;
+            });
+        }
+        return super.get(interpreter, name, position);
+    }
+    @Override
+    public String toString() {
+        return "<generator>";
+    }
+}
@@ -2,27 +2,41 @@ package myJSInterpreter;
 import java.util.*;
 
 public class JSInstance {
-    private final Map<String, Object> fields = new HashMap<>();
+    // Insertion-ordered, as JSON output and field iteration expect.
+    private final Map<String, Object> fields = new LinkedHashMap<>();
     private JSClass klass;
+    boolean sealed;
     JSInstance(JSClass klass) {
         this.klass = klass;
     }
-    Object get(Token name) {
-        if (fields.containsKey(name.lexeme)) {
-            return fields.get(name.lexeme);
+    Object get(String name, int position) {
+        if (fields.containsKey(name)) {
+            return fields.get(name);
         }
-        JSFunction method = klass.findMethod(name.lexeme);
-        if (method != null) return method;
-        throw new RuntimeError(name,
-                "Undefined property '" + name.lexeme + "'.");
+        JSFunction method = klass.findMethod(name);
+        if (method != null) return method.bind(this);
+        throw new RuntimeError(position,
+                "Undefined property '" + name + "'.");
     }
 
     @Override
     public String toString() {
         return klass.name + " instance";
     }
-    void set(Token name, Object value) {
-        fields.put(name.lexeme, value);
+    void set(String name, Object value) {
+        fields.put(name, value);
+    }
+    int fieldCount() {
+        return fields.size();
+    }
+    Map<String, Object> fields() {
+        return fields;
+    }
+    JSClass klass() {
+        return klass;
+    }
+    String className() {
+        return klass.name;
     }
 
 }
@@ -0,0 +1,246 @@
+package myJSInterpreter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// A lazy sequence of values: what for-of walks, and what range(), iterate(), the file and JSON
+// streams and the map/filter/take pipelines hand to scripts. Each pipeline stage pulls one value
+// at a time from the stage before it, so a pipeline is a single pass with no intermediate arrays.
+abstract class JSIterator implements JSNativeObject {
+    static final Object DONE = new Object();
+    private static final String SEALED = "Can't use an iterator set up by the prelude.";
+    private static final Object NONE = new Object();
+    private Object lookahead = NONE;
+    // Set on iterators set up by the prelude of a pooled context: using one up would change it
+    // for every later request.
+    boolean sealed;
+
+    // The next value, or DONE once the sequence is used up (and on every call after that).
+    abstract Object advance(Interpreter interpreter);
+    // Releases what the sequence holds when it is abandoned before the end.
+    void close() {
+    }
+
+    final Object nextValue(Interpreter interpreter) {
+        if (sealed) throw interpreter.nativeError(SEALED);
+        if (lookahead != NONE) {
+            Object value = lookahead;
+            lookahead = NONE;
+            return value;
+        }
+        return advance(interpreter);
+    }
+    private boolean hasNext(Interpreter interpreter) {
+        if (lookahead == NONE) lookahead = advance(interpreter);
+        return lookahead != DONE;
+    }
+
+    static JSIterator of(Interpreter interpreter, Object value, int position) {
+        if (value instanceof JSIterator) {
+            if (((JSIterator) value).sealed) throw new RuntimeError(position, SEALED);
+            return (JSIterator) value;
+        }
+        if (value instanceof List) return new Elements((List<?>) value);
+        if (value instanceof JSTypedArray) return new TypedElements((JSTypedArray) value);
+        if (value instanceof JSCollection) return new Entries((JSCollection) value);
+        throw new RuntimeError(position, "Can only iterate over arrays, typed arrays, maps, sets and iterators.");
+    }
+
+    @Override
+    public Object get(Interpreter interpreter, String name, int position) {
+        if (sealed) throw new RuntimeError(position, SEALED);
+        switch (name) {
+            case "hasNext":
+                return new NativeFunction("hasNext", 0, (in, arguments) -> hasNext(in));
+            case "next":
+                return new NativeFunction("next", 0, (in, arguments) -> {
+                    Object value = nextValue(in);
+                    return value == DONE ? null : value;
+                });
+            case "close":
+                return new NativeFunction("close", 0, (in, arguments) -> {
+                    close();
+                    return null;
+                });
+            case "map":
+                return new NativeFunction("map", 1, (in, arguments) ->
+                        new Mapped(this, in.callable(arguments.get(0)), in.callStack.topPosition()));
+            case "filter":
+                return new NativeFunction("filter", 1, (in, arguments) ->
+                        new Filtered(this, in.callable(arguments.get(0)), in.callStack.topPosition()));
+            case "take":
+                return new NativeFunction("take", 1, (in, arguments) -> {
+                    double count = in.number(arguments.get(0));
+                    if (count < 0 || count != Math.floor(count)) throw in.nativeError("Count must be a whole number.");
+                    return new Taken(this, (long) count);
+                });
+            case "toArray":
+                return new NativeFunction("toArray", 0, (in, arguments) -> {
+                    List<Object> values = new ArrayList<>();
+                    for (Object value = nextValue(in); value != DONE; value = nextValue(in)) values.add(value);
+                    in.charge(40 + 4L * values.size(), in.callStack.topPosition());
+                    return values;
+                });
+        }
+        throw new RuntimeError(position, "Undefined property '" + name + "'.");
+    }
+    @Override
+    public String toString() {
+        return "<iterator>";
+    }
+
+    private static List<Object> single(Object value) {
+        List<Object> arguments = new ArrayList<>(1);
+        arguments.add(value);
+        return arguments;
+    }
+
+    // range(start, end, step): numbers computed on demand as start + i * step, so no error
+    // accumulates over long ranges.
+    static final class Range extends JSIterator {
+        private final double start;
+        private final double end;
+        private final double step;
+        private long index;
+
+        Range(double start, double end, double step) {
+            this.start = start;
+            this.end = end;
+            this.step = step;
+        }
+        @Override
+        Object advance(Interpreter interpreter) {
+            double value = start + index * step;
+            if (step > 0 ? value >= end : value <= end) return DONE;
+            index++;
+            return value;
+        }
+    }
+
+    // Arrays are read by index, so elements changed while iterating are seen.
+    private static final class Elements extends JSIterator {
+        private final List<?> elements;
+        private int index;
+
+        Elements(List<?> elements) {
+            this.elements = elements;
+        }
+        @Override
+        Object advance(Interpreter interpreter) {
+            return index < elements.size() ? elements.get(index++) : DONE;
+        }
+    }
+
+    private static final class TypedElements extends JSIterator {
+        private final JSTypedArray array;
+        private long index;
+
+        TypedElements(JSTypedArray array) {
+            this.array = array;
+        }
+        @Override
+        Object advance(Interpreter interpreter) {
+            return index < array.length() ? (Object) array.get(index++) : DONE;
+        }
+    }
+
+    // Set values, or [key, value] pairs of a Map. The position is a cursor the table renumbers when
+    // a resize squeezes out removed entries, so an iterator that is never finished pins nothing.
+    private static final class Entries extends JSIterator {
+        private final JSCollection collection;
+        private OrderedTable.Cursor cursor;
+
+        Entries(JSCollection collection) {
+            this.collection = collection;
+            this.cursor = collection.table.cursor();
+        }
+        @Override
+        Object advance(Interpreter interpreter) {
+            if (cursor == null) return DONE;
+            OrderedTable table = collection.table;
+            while (cursor.entry < table.end() && !table.isLive(cursor.entry)) cursor.entry++;
+            if (cursor.entry >= table.end()) {
+                close();
+                return DONE;
+            }
+            int current = cursor.entry++;
+            if (!collection.isMap()) return table.keyAt(current);
+            List<Object> pair = new ArrayList<>(2);
+            pair.add(table.keyAt(current));
+            pair.add(table.valueAt(current));
+            return pair;
+        }
+        @Override
+        void close() {
+            if (cursor != null) collection.table.release(cursor);
+            cursor = null;
+        }
+    }
+
+    private static final class Mapped extends JSIterator {
+        private final JSIterator source;
+        private final JSCallable function;
+        private final int position;
+
+        Mapped(JSIterator source, JSCallable function, int position) {
+            this.source = source;
+            this.function = function;
+            this.position = position;
+        }
+        @Override
+        Object advance(Interpreter interpreter) {
+            Object value = source.nextValue(interpreter);
+            return value == DONE ? DONE : interpreter.call(function, single(value), position);
+        }
+        @Override
+        void close() {
+            source.close();
+        }
+    }
+
+    private static final class Filtered extends JSIterator {
+        private final JSIterator source;
+        private final JSCallable predicate;
+        private final int position;
+
+        Filtered(JSIterator source, JSCallable predicate, int position) {
+            this.source = source;
+            this.predicate = predicate;
+            this.position = position;
+        }
+        @Override
+        Object advance(Interpreter interpreter) {
+            for (Object value = source.nextValue(interpreter); value != DONE; value = source.nextValue(interpreter)) {
+                if (interpreter.isTruthy(interpreter.call(predicate, single(value), position))) return value;
+            }
+            return DONE;
+        }
+        @Override
+        void close() {
+            source.close();
+        }
+    }
+
+    // Closes its source after the last value, so take() on a file stream stops reading the file.
+    private static final class Taken extends JSIterator {
+        private final JSIterator source;
+        private long remaining;
+
+        Taken(JSIterator source, long count) {
+            this.source = source;
+            this.remaining = count;
+        }
+        @Override
+        Object advance(Interpreter interpreter) {
+            if (remaining == 0) return DONE;
+            Object value = source.nextValue(interpreter);
+            if (value == DONE || --remaining == 0) source.close();
+            if (value == DONE) remaining = 0;
+            return value;
+        }
+        @Override
+        void close() {
+            source.close();
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package myJSInterpreter;
+
+// A builtin value whose properties are served by Java code rather than JSInstance fields.
+interface JSNativeObject {
+    Object get(Interpreter interpreter, String name, int position);
+}
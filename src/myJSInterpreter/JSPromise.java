@@ -0,0 +1,198 @@
+package myJSInterpreter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class JSPromise implements JSNativeObject {
+    private enum State { PENDING, FULFILLED, REJECTED }
+
+    interface Reaction {
+        void settled(Object value, RuntimeError error);
+    }
+
+    private final EventLoop loop;
+    private State state = State.PENDING;
+    private Object value;
+    private RuntimeError error;
+    private List<Reaction> reactions = new ArrayList<>();
+    private boolean handled;
+
+    JSPromise(EventLoop loop) {
+        this.loop = loop;
+    }
+    static JSPromise resolved(Interpreter interpreter, Object value) {
+        if (value instanceof JSPromise) return (JSPromise) value;
+        JSPromise promise = new JSPromise(interpreter.eventLoop);
+        promise.resolve(value);
+        return promise;
+    }
+
+    void resolve(Object value) {
+        if (state != State.PENDING) return;
+        if (value == this) {
+            reject(new RuntimeError(0, "Promise resolved with itself."));
+        } else if (value instanceof JSPromise) {
+            ((JSPromise) value).whenSettled((result, failure) -> {
+                if (failure != null) reject(failure);
+                else resolve(result);
+            });
+        } else {
+            settle(State.FULFILLED, value, null);
+        }
+    }
+    void reject(RuntimeError error) {
+        if (state != State.PENDING) return;
+        settle(State.REJECTED, null, error);
+        if (!handled) loop.trackRejection(this);
+    }
+    private void settle(State state, Object value, RuntimeError error) {
+        this.state = state;
+        this.value = value;
+        this.error = error;
+        List<Reaction> pending = reactions;
+        reactions = null;
+        for (Reaction reaction : pending) {
+            schedule(reaction);
+        }
+    }
+    // Reactions always run from the microtask queue, even when the promise has already settled.
+    void whenSettled(Reaction reaction) {
+        handled = true;
+        if (state == State.PENDING) {
+            reactions.add(reaction);
+        } else {
+            schedule(reaction);
+        }
+    }
+    private void schedule(Reaction reaction) {
+        Object result = value;
+        RuntimeError failure = error;
+        loop.queueMicrotask(() -> reaction.settled(result, failure));
+    }
+    boolean handled() {
+        return handled;
+    }
+    boolean isPending() {
+        return state == State.PENDING;
+    }
+    Object value() {
+        return value;
+    }
+    RuntimeError error() {
+        return error;
+    }
+
+    // p.then(onFulfilled) / p.catch(onRejected): the handler's result settles the returned promise.
+    private JSPromise chain(Interpreter interpreter, JSCallable onFulfilled, JSCallable onRejected, int position) {
+        JSPromise next = new JSPromise(loop);
+        whenSettled((result, failure) -> {
+            try {
+                if (failure == null) {
+                    next.resolve(onFulfilled == null ? result
+                            : interpreter.call(onFulfilled, single(result), position));
+                } else if (onRejected != null) {
+                    next.resolve(interpreter.call(onRejected, single(interpreter.errorValue(failure)), position));
+                } else {
+                    next.reject(failure);
+                }
+            } catch (ExecutionLimitError e) {
+                throw e;
+            } catch (RuntimeError e) {
+                next.reject(e);
+            }
+        });
+        return next;
+    }
+    private static List<Object> single(Object value) {
+        List<Object> arguments = new ArrayList<>(1);
+        arguments.add(value);
+        return arguments;
+    }
+
+    @Override
+    public Object get(Interpreter interpreter, String name, int position) {
+        switch (name) {
+            case "then":
+                return new NativeFunction("then", 1, (in, arguments) ->
+                        chain(in, in.callable(arguments.get(0)), null, in.callStack.topPosition()));
+            case "catch":
+                return new NativeFunction("catch", 1, (in, arguments) ->
+                        chain(in, null, in.callable(arguments.get(0)), in.callStack.topPosition()));
+        }
+        throw new RuntimeError(position, "Undefined property '" + name + "'.");
+    }
+    @Override
+    public String toString() {
+        return "<promise>";
+    }
+
+    // The global Promise: callable with an executor(resolve, reject), plus resolve/reject/all.
+    static final class Constructor implements JSCallable, JSNativeObject {
+        @Override
+        public Object call(Interpreter interpreter, List<Object> arguments) {
+            JSCallable executor = interpreter.callable(arguments.get(0));
+            JSPromise promise = new JSPromise(interpreter.eventLoop);
+            List<Object> functions = new ArrayList<>(2);
+            functions.add(new NativeFunction("resolve", 1, (in, values) -> {
+                promise.resolve(values.get(0));
+                return null;
+            }));
+            functions.add(new NativeFunction("reject", 1, (in, values) -> {
+                promise.reject(in.rejection(values.get(0)));
+                return null;
+            }));
+            try {
+                interpreter.call(executor, functions, interpreter.callStack.topPosition());
+            } catch (ExecutionLimitError e) {
+                throw e;
+            } catch (RuntimeError e) {
+                promise.reject(e);
+            }
+            return promise;
+        }
+        @Override
+        public int arity() {
+            return 1;
+        }
+        @Override
+        public Object get(Interpreter interpreter, String name, int position) {
+            switch (name) {
+                case "resolve":
+                    return new NativeFunction("resolve", 1, (in, arguments) ->
+                            resolved(in, arguments.get(0)));
+                case "reject":
+                    return new NativeFunction("reject", 1, (in, arguments) -> {
+                        JSPromise promise = new JSPromise(in.eventLoop);
+                        promise.reject(in.rejection(arguments.get(0)));
+                        return promise;
+                    });
+                case "all":
+                    return new NativeFunction("all", 1, (in, arguments) -> all(in, in.array(arguments.get(0))));
+            }
+            throw new RuntimeError(position, "Undefined property '" + name + "'.");
+        }
+        private static JSPromise all(Interpreter interpreter, List<Object> items) {
+            JSPromise promise = new JSPromise(interpreter.eventLoop);
+            List<Object> results = new ArrayList<>(items.size());
+            int[] remaining = {items.size()};
+            if (items.isEmpty()) promise.resolve(results);
+            for (int i = 0; i < items.size(); i++) {
+                results.add(null);
+                int index = i;
+                resolved(interpreter, items.get(i)).whenSettled((result, failure) -> {
+                    if (failure != null) {
+                        promise.reject(failure);
+                        return;
+                    }
+                    results.set(index, result);
+                    if (--remaining[0] == 0) promise.resolve(results);
+                });
+            }
+            return promise;
+        }
+        @Override
+        public String toString() {
+            return "<native fn>";
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package myJSInterpreter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+// A fixed-length array of float64 or int32 elements kept off the Java heap, in direct buffers or
+// in a file mapped with FileChannel.map. One buffer can't address more than 2 GiB, so storage is
+// split into chunks of CHUNK_BYTES. Elements are little-endian, so mapped files are portable.
+public final class JSTypedArray implements JSNativeObject {
+    enum Kind {
+        FLOAT64("Float64Array", 3),
+        INT32("Int32Array", 2);
+
+        final String name;
+        final int shift;
+        Kind(String name, int shift) {
+            this.name = name;
+            this.shift = shift;
+        }
+    }
+
+    private static final int CHUNK_SHIFT = 30;
+    private static final long CHUNK_BYTES = 1L << CHUNK_SHIFT;
+    private final Kind kind;
+    private final ByteBuffer[] chunks;
+    private final long length;
+    private final boolean readOnly;
+    private final boolean mapped;
+    // Set on arrays set up by the prelude of a pooled context, which requests must not modify.
+    boolean sealed;
+
+    private JSTypedArray(Kind kind, ByteBuffer[] chunks, long length, boolean readOnly, boolean mapped) {
+        this.kind = kind;
+        this.chunks = chunks;
+        this.length = length;
+        this.readOnly = readOnly;
+        this.mapped = mapped;
+    }
+
+    static JSTypedArray allocate(Kind kind, long length) {
+        long bytes = length << kind.shift;
+        ByteBuffer[] chunks = new ByteBuffer[(int) ((bytes + CHUNK_BYTES - 1) >>> CHUNK_SHIFT)];
+        for (int i = 0; i < chunks.length; i++) {
+            int size = (int) Math.min(CHUNK_BYTES, bytes - ((long) i << CHUNK_SHIFT));
+            chunks[i] = ByteBuffer.allocateDirect(size).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return new JSTypedArray(kind, chunks, length, false, false);
+    }
+    // Maps the whole file; trailing bytes that don't fill an element are left out.
+    static JSTypedArray map(Kind kind, Path file, boolean writable) throws IOException {
+        try (FileChannel channel = writable
+                ? FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size() >> kind.shift;
+            long bytes = length << kind.shift;
+            ByteBuffer[] chunks = new ByteBuffer[(int) ((bytes + CHUNK_BYTES - 1) >>> CHUNK_SHIFT)];
+            FileChannel.MapMode mode = writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+            for (int i = 0; i < chunks.length; i++) {
+                long offset = (long) i << CHUNK_SHIFT;
+                chunks[i] = channel.map(mode, offset, Math.min(CHUNK_BYTES, bytes - offset))
+                        .order(ByteOrder.LITTLE_ENDIAN);
+            }
+            return new JSTypedArray(kind, chunks, length, !writable, true);
+        }
+    }
+
+    long length() {
+        return length;
+    }
+    double get(long index) {
+        long offset = index << kind.shift;
+        ByteBuffer chunk = chunks[(int) (offset >>> CHUNK_SHIFT)];
+        int at = (int) (offset & (CHUNK_BYTES - 1));
+        return kind == Kind.FLOAT64 ? chunk.getDouble(at) : chunk.getInt(at);
+    }
+    void set(long index, double value) {
+        long offset = index << kind.shift;
+        ByteBuffer chunk = chunks[(int) (offset >>> CHUNK_SHIFT)];
+        int at = (int) (offset & (CHUNK_BYTES - 1));
+        if (kind == Kind.FLOAT64) {
+            chunk.putDouble(at, value);
+        } else {
+            chunk.putInt(at, toInt32(value));
+        }
+    }
+    // JavaScript's ToInt32: truncate, then wrap modulo 2^32. The remainder is exact, and NaN and the
+    // infinities come out of it as NaN, which the cast turns into 0.
+    static int toInt32(double value) {
+        return (int) (long) (value % 4294967296.0);
+    }
+    // Direct memory this array holds; a mapped file's pages belong to the OS page cache.
+    long ownedBytes() {
+        return mapped ? 0 : length << kind.shift;
+    }
+    boolean isReadOnly() {
+        return readOnly;
+    }
+    boolean isMapped() {
+        return mapped;
+    }
+    Kind kind() {
+        return kind;
+    }
+    String kindName() {
+        return kind.name;
+    }
+
+    // The bulk operations below walk each chunk directly and never box an element.
+    private double sum() {
+        double sum = 0;
+        for (ByteBuffer chunk : chunks) {
+            int end = chunk.limit();
+            if (kind == Kind.FLOAT64) {
+                for (int at = 0; at < end; at += 8) sum += chunk.getDouble(at);
+            } else {
+                for (int at = 0; at < end; at += 4) sum += chunk.getInt(at);
+            }
+        }
+        return sum;
+    }
+    private double extreme(boolean max) {
+        double result = max ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        int step = 1 << kind.shift;
+        for (ByteBuffer chunk : chunks) {
+            int end = chunk.limit();
+            for (int at = 0; at < end; at += step) {
+                double value = kind == Kind.FLOAT64 ? chunk.getDouble(at) : chunk.getInt(at);
+                result = max ? Math.max(result, value) : Math.min(result, value);
+            }
+        }
+        return result;
+    }
+    private void fill(double value) {
+        int step = 1 << kind.shift;
+        for (ByteBuffer chunk : chunks) {
+            int end = chunk.limit();
+            for (int at = 0; at < end; at += step) {
+                if (kind == Kind.FLOAT64) {
+                    chunk.putDouble(at, value);
+                } else {
+                    chunk.putInt(at, toInt32(value));
+                }
+            }
+        }
+    }
+
+    @Override
+    public Object get(Interpreter interpreter, String name, int position) {
+        switch (name) {
+            case "length":
+                return (double) length;
+            case "sum":
+                return new NativeFunction("sum", 0, (in, arguments) -> sum());
+            case "min":
+                return new NativeFunction("min", 0, (in, arguments) -> extreme(false));
+            case "max":
+                return new NativeFunction("max", 0, (in, arguments) -> extreme(true));
+            case "fill":
+                return new NativeFunction("fill", 1, (in, arguments) -> {
+                    if (readOnly) throw in.nativeError("Can't modify a read-only " + kind.name + ".");
+                    if (sealed) throw in.nativeError("Can't modify a " + kind.name + " set up by the prelude.");
+                    fill(in.number(arguments.get(0)));
+                    return this;
+                });
+        }
+        throw new RuntimeError(position, "Undefined property '" + name + "'.");
+    }
+    @Override
+    public String toString() {
+        return kind.name + "(" + length + ")";
+    }
+
+    // The globals Float64Array and Int32Array: callable with a length, plus map(path, mode) where
+    // mode is "r" or "rw".
+    static final class Constructor implements JSCallable, JSNativeObject {
+        private final Kind kind;
+
+        Constructor(Kind kind) {
+            this.kind = kind;
+        }
+        @Override
+        public Object call(Interpreter interpreter, List<Object> arguments) {
+            double length = interpreter.number(arguments.get(0));
+            if (length < 0 || length != Math.floor(length) || length > (Long.MAX_VALUE >> kind.shift)) {
+                throw interpreter.nativeError("Invalid " + kind.name + " length.");
+            }
+            interpreter.chargeBlock(24 + ((long) length << kind.shift), interpreter.callStack.topPosition());
+            try {
+                return allocate(kind, (long) length);
+            } catch (OutOfMemoryError e) {
+                throw interpreter.nativeError("Not enough direct memory for a " + kind.name + " of length "
+                        + (long) length + ".");
+            }
+        }
+        @Override
+        public int arity() {
+            return 1;
+        }
+        @Override
+        public Object get(Interpreter interpreter, String name, int position) {
+            if (name.equals("map")) {
+                return new NativeFunction("map", 2, (in, arguments) -> {
+                    Object mode = arguments.get(1);
+                    if (!"r".equals(mode) && !"rw".equals(mode)) {
+                        throw in.nativeError("Mode must be \"r\" or \"rw\".");
+                    }
+                    try {
+                        return map(kind, in.resolvePath(in.string(arguments.get(0))), "rw".equals(mode));
+                    } catch (IOException e) {
+                        throw in.nativeError("Can't map " + arguments.get(0) + ": " + e.getMessage());
+                    }
+                });
+            }
+            throw new RuntimeError(position, "Undefined property '" + name + "'.");
+        }
+        @Override
+        public String toString() {
+            return "<native fn>";
+        }
+    }
+}
@@ -6,74 +6,152 @@ import java.io.InputStreamReader;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class JavaScript {
 
-    static boolean hadError = false;
-    static boolean hadRuntimeError = false;
-    private static final Interpreter interpreter = new Interpreter();
+    private static final JSContext context = new JSContext();
+    private static final String PROFILE_FILE = "profile.folded";
+    private static final String USAGE = "Usage: js [--prof] [--alloc-sites] [--snapshot file] [--prelude script]"
+            + " [--save-snapshot file] [--max-steps n] [--timeout ms] [--max-memory mb] [--memory-stats] [--daemon socket | --client socket | --batch dir [--jobs n]]"
+            + " [script [args...]]";
 
-    private static void runFile(String path) throws IOException {
+    private static int runFile(String path) throws IOException {
         byte[] bytes = Files.readAllBytes(Paths.get(path));
-        run(new String(bytes, Charset.defaultCharset()));
-        if(hadError) System.exit(65);
-        if (hadRuntimeError) System.exit(70);
+        try {
+            context.run(new String(bytes, Charset.defaultCharset()));
+        } finally {
+            context.interpreter.output().flush();
+        }
+        return context.exitStatus();
     }
     private static void runPrompt() throws IOException {
         InputStreamReader isr = new InputStreamReader(System.in);
         BufferedReader br = new BufferedReader(isr);
         for(;;) {
+            context.interpreter.output().flush();
             System.out.print(">");
+            System.out.flush();
             String line = br.readLine();
             if(line == null) {
                 break;
             }
-            run(line);
-            hadError = false;
-        }
-    }
-    private static void run(String source) {
-        TokenScanner scanner = new TokenScanner(source);
-        List<Token> tokens = scanner.scanTokens();
-        TokenParser parser = new TokenParser(tokens);
-        List<Statement> statements = parser.parse();
-        if (hadError) return;
-        Resolver resolver = new Resolver(interpreter);
-        resolver.resolve(statements);
-        if (hadError) return;
-        interpreter.interpret(statements);
-    }
-    static void error(int line, String message) {
-        report(line, "",message);
-        hadError = true;
-    }
-    static void error(Token token, String message) {
-        if (token.type == TokenType.EOF) {
-            report(token.line, " at end", message);
-        } else {
-            report(token.line, " at '" + token.lexeme + "'", message);
+            context.run(line);
+            context.clearCompileErrors();
         }
     }
-    private static void report(int line, String where,
-                               String message) {
-        System.err.println("[line " + line + "] Error" + where + ": " + message);
-        hadError = true;
-    }
     public static void main(String[] args) throws IOException {
-        if (args.length > 1) {
-            System.out.println("Usage: js [script]");
-            System.exit(64);
-        } else if (args.length == 1) {
-            runFile(args[0]);
-        } else {
-            runPrompt();
+        boolean profile = false;
+        boolean allocationSites = false;
+        boolean memoryStats = false;
+        long maxMemory = Long.MAX_VALUE;
+        String snapshot = null;
+        String prelude = null;
+        String saveSnapshot = null;
+        String daemon = null;
+        String client = null;
+        String batch = null;
+        int jobs = Runtime.getRuntime().availableProcessors();
+        String path = null;
+        List<String> scriptArguments = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--prof")) {
+                profile = true;
+            } else if (arg.equals("--alloc-sites")) {
+                allocationSites = true;
+            } else if (arg.equals("--snapshot") && i + 1 < args.length) {
+                snapshot = args[++i];
+            } else if (arg.equals("--prelude") && i + 1 < args.length) {
+                prelude = args[++i];
+            } else if (arg.equals("--save-snapshot") && i + 1 < args.length) {
+                saveSnapshot = args[++i];
+            } else if (arg.equals("--daemon") && i + 1 < args.length) {
+                daemon = args[++i];
+            } else if (arg.equals("--client") && i + 1 < args.length) {
+                client = args[++i];
+            } else if (arg.equals("--max-steps") && i + 1 < args.length && args[i + 1].matches("[1-9][0-9]*")) {
+                context.limitSteps(Long.parseLong(args[++i]));
+            } else if (arg.equals("--timeout") && i + 1 < args.length && args[i + 1].matches("[1-9][0-9]*")) {
+                context.limitTime(Long.parseLong(args[++i]));
+            } else if (arg.equals("--max-memory") && i + 1 < args.length && args[i + 1].matches("[1-9][0-9]*")) {
+                maxMemory = Long.parseLong(args[++i]) << 20;
+            } else if (arg.equals("--memory-stats")) {
+                memoryStats = true;
+            } else if (arg.equals("--batch") && i + 1 < args.length) {
+                batch = args[++i];
+            } else if (arg.equals("--jobs") && i + 1 < args.length && args[i + 1].matches("[1-9][0-9]*")) {
+                jobs = Integer.parseInt(args[++i]);
+            } else if (!arg.startsWith("--")) {
+                path = arg;
+                scriptArguments.addAll(Arrays.asList(args).subList(i + 1, args.length));
+                break;
+            } else {
+                System.out.println(USAGE);
+                System.exit(64);
+            }
         }
-    }
-
-    public static void runtimeError(RuntimeError error) {
-        System.err.println(error.getMessage() +
-                "\n[line " + error.token.line + "]");
-        hadRuntimeError = true;
+        if (daemon != null) {
+            Daemon.serve(Paths.get(daemon));
+            return;
+        }
+        if (batch != null) {
+            int status = BatchRunner.run(Paths.get(batch), jobs, System.out);
+            if (status != 0) System.exit(status);
+            return;
+        }
+        if (client != null) {
+            if (path == null) {
+                System.out.println(USAGE);
+                System.exit(64);
+            }
+            System.exit(DaemonClient.run(Paths.get(client), Paths.get(path), scriptArguments));
+        }
+        if (memoryStats || maxMemory != Long.MAX_VALUE) context.limitMemory(maxMemory);
+        try {
+            // After the restore, which would otherwise bring back the args saved with the snapshot.
+            if (snapshot != null) context.restoreSnapshot(Paths.get(snapshot));
+            context.defineArguments(scriptArguments);
+            if (prelude != null) {
+                int status = runFile(prelude);
+                if (status != 0) System.exit(status);
+            }
+            if (saveSnapshot != null) {
+                context.saveSnapshot(Paths.get(saveSnapshot));
+                if (path == null) return;
+            }
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            System.exit(74);
+        }
+        Interpreter interpreter = context.interpreter;
+        if (allocationSites) interpreter.trackAllocationSites();
+        Profiler profiler = profile ? Profiler.start(interpreter.callStack) : null;
+        int status = 0;
+        try {
+            if (path != null) {
+                status = runFile(path);
+            } else {
+                runPrompt();
+            }
+        } finally {
+            if (profiler != null) {
+                profiler.stop();
+                profiler.writeCollapsed(Paths.get(PROFILE_FILE));
+                profiler.writeSummary(System.err);
+                System.err.println("Collapsed stacks written to " + PROFILE_FILE);
+            }
+            if (allocationSites) {
+                interpreter.output().flush();
+                interpreter.allocationSites.dump(System.err);
+            }
+            if (memoryStats) {
+                interpreter.output().flush();
+                System.err.println("Peak heap: " + context.peakMemory() + " bytes");
+            }
+        }
+        if (status != 0) System.exit(status);
     }
 }
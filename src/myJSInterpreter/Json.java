@@ -0,0 +1,451 @@
+package myJSInterpreter;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// The JSON global. parse and stringify work on strings; write prints a value straight into the
+// output sink; readStream(path) yields the elements of a top-level array (or each of a sequence
+// of top-level values) one at a time, so a file never has to fit in memory at once. Objects
+// become instances of a method-less class named Object, arrays become ordinary arrays.
+final class Json implements JSNativeObject {
+    static final JSClass OBJECT = new JSClass("Object", null, Map.of());
+    private static final int MAX_DEPTH = 512;
+    private static final int FLUSH_AT = 1 << 13;
+
+    @Override
+    public Object get(Interpreter interpreter, String name, int position) {
+        switch (name) {
+            case "parse":
+                return new NativeFunction("parse", 1, (in, arguments) -> {
+                    Parser parser = new Parser(in, in.string(arguments.get(0)));
+                    try {
+                        Object value = parser.value(0);
+                        if (parser.peek() != -1) throw parser.error("Unexpected data after JSON value");
+                        return value;
+                    } catch (IOException e) {
+                        throw new IllegalStateException("Strings can't fail to read", e);
+                    }
+                });
+            case "stringify":
+                return new NativeFunction("stringify", 1, (in, arguments) -> {
+                    StringBuilder out = new StringBuilder();
+                    new Writer(in, out, null).value(arguments.get(0));
+                    in.charge(40 + out.length(), in.callStack.topPosition());
+                    return out.toString();
+                });
+            case "write":
+                return new NativeFunction("write", 1, (in, arguments) -> {
+                    StringBuilder out = new StringBuilder(FLUSH_AT + 256);
+                    new Writer(in, out, in.output()).value(arguments.get(0));
+                    in.output().print(out);
+                    in.output().println();
+                    return null;
+                });
+            case "readStream":
+                return new NativeFunction("readStream", 1, (in, arguments) ->
+                        Stream.open(in, in.string(arguments.get(0))));
+        }
+        throw new RuntimeError(position, "Undefined property '" + name + "'.");
+    }
+    @Override
+    public String toString() {
+        return "<JSON>";
+    }
+
+    // Reads from a whole string, or from a reader through a refilled buffer.
+    static final class Parser {
+        private final Interpreter interpreter;
+        private final Reader reader;
+        private final char[] buffer;
+        private int position;
+        private int limit;
+        private long consumed;
+        private final StringBuilder text = new StringBuilder();
+        // Keys repeat across objects, so each distinct one is kept once.
+        private final Map<String, String> keys = new HashMap<>();
+
+        Parser(Interpreter interpreter, String source) {
+            this.interpreter = interpreter;
+            this.reader = null;
+            this.buffer = source.toCharArray();
+            this.limit = buffer.length;
+        }
+        Parser(Interpreter interpreter, Reader reader) {
+            this.interpreter = interpreter;
+            this.reader = reader;
+            this.buffer = new char[1 << 16];
+        }
+
+        Object value(int depth) throws IOException {
+            int c = peek();
+            switch (c) {
+                case '{':
+                    position++;
+                    return object(depth + 1);
+                case '[':
+                    position++;
+                    return array(depth + 1);
+                case '"':
+                    position++;
+                    String string = string();
+                    interpreter.charge(40 + string.length(), interpreter.callStack.topPosition());
+                    return string;
+                case 't':
+                    literal("true");
+                    return Boolean.TRUE;
+                case 'f':
+                    literal("false");
+                    return Boolean.FALSE;
+                case 'n':
+                    literal("null");
+                    return null;
+                case -1:
+                    throw error("Unexpected end of JSON input");
+            }
+            if (c == '-' || c >= '0' && c <= '9') return number();
+            throw error("Unexpected character '" + (char) c + "'");
+        }
+        private JSInstance object(int depth) throws IOException {
+            if (depth > MAX_DEPTH) throw error("Nesting too deep");
+            JSInstance instance = new JSInstance(OBJECT);
+            interpreter.charge(24 + AllocationSites.hashMapBytes(0), interpreter.callStack.topPosition());
+            if (peek() == '}') {
+                position++;
+                return instance;
+            }
+            for (;;) {
+                expect('"');
+                String key = string();
+                String known = keys.putIfAbsent(key, key);
+                expect(':');
+                instance.set(known == null ? key : known, value(depth));
+                interpreter.charge(36, interpreter.callStack.topPosition());
+                int c = peek();
+                if (c != ',' && c != '}') throw error(c == -1 ? "Unexpected end of JSON input" : "Expected ',' or '}'");
+                position++;
+                if (c == '}') return instance;
+            }
+        }
+        private List<Object> array(int depth) throws IOException {
+            if (depth > MAX_DEPTH) throw error("Nesting too deep");
+            List<Object> array = new ArrayList<>();
+            if (peek() == ']') {
+                position++;
+            } else {
+                for (;;) {
+                    array.add(value(depth));
+                    int c = peek();
+                    if (c != ',' && c != ']') throw error(c == -1 ? "Unexpected end of JSON input" : "Expected ',' or ']'");
+                    position++;
+                    if (c == ']') break;
+                }
+            }
+            interpreter.charge(40 + 4L * array.size(), interpreter.callStack.topPosition());
+            return array;
+        }
+        // Called after the opening quote. Strings without escapes that sit in the buffer are cut
+        // out of it directly.
+        private String string() throws IOException {
+            int start = position;
+            while (position < limit) {
+                char c = buffer[position];
+                if (c == '"') {
+                    position++;
+                    return new String(buffer, start, position - 1 - start);
+                }
+                if (c == '\\' || c < 0x20) break;
+                position++;
+            }
+            text.setLength(0);
+            text.append(buffer, start, position - start);
+            for (;;) {
+                char c = next("Unterminated string");
+                if (c == '"') return text.toString();
+                if (c == '\\') {
+                    text.append(escape());
+                } else if (c < 0x20) {
+                    throw error("Bad control character in string");
+                } else {
+                    text.append(c);
+                }
+            }
+        }
+        private char escape() throws IOException {
+            char c = next("Unterminated string");
+            switch (c) {
+                case '"':
+                case '\\':
+                case '/':
+                    return c;
+                case 'b':
+                    return '\b';
+                case 'f':
+                    return '\f';
+                case 'n':
+                    return '\n';
+                case 'r':
+                    return '\r';
+                case 't':
+                    return '\t';
+                case 'u':
+                    int code = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int digit = Character.digit(next("Unterminated string"), 16);
+                        if (digit < 0) throw error("Bad Unicode escape");
+                        code = code << 4 | digit;
+                    }
+                    return (char) code;
+            }
+            throw error("Bad escaped character");
+        }
+        private Double number() throws IOException {
+            text.setLength(0);
+            for (;;) {
+                if (position == limit && !refill()) break;
+                char c = buffer[position];
+                if (!(c >= '0' && c <= '9' || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E')) break;
+                text.append(c);
+                position++;
+            }
+            try {
+                return Double.parseDouble(text.toString());
+            } catch (NumberFormatException e) {
+                throw error("Bad number '" + text + "'");
+            }
+        }
+        private void literal(String word) throws IOException {
+            for (int i = 0; i < word.length(); i++) {
+                if (next("Unexpected end of JSON input") != word.charAt(i)) throw error("Unexpected token");
+            }
+        }
+        private void expect(char expected) throws IOException {
+            if (peek() != expected) throw error("Expected '" + expected + "'");
+            position++;
+        }
+        // Skips whitespace and returns the next character without consuming it, or -1 at the end.
+        int peek() throws IOException {
+            for (;;) {
+                if (position == limit && !refill()) return -1;
+                char c = buffer[position];
+                if (c != ' ' && c != '\n' && c != '\r' && c != '\t') return c;
+                position++;
+            }
+        }
+        private char next(String atEnd) throws IOException {
+            if (position == limit && !refill()) throw error(atEnd);
+            return buffer[position++];
+        }
+        private boolean refill() throws IOException {
+            if (reader == null) return false;
+            consumed += limit;
+            position = 0;
+            limit = Math.max(0, reader.read(buffer, 0, buffer.length));
+            return limit > 0;
+        }
+        RuntimeError error(String message) {
+            return interpreter.nativeError(message + " at offset " + (consumed + position) + ".");
+        }
+    }
+
+    // Produced by JSON.readStream; an iterator like the file streams.
+    static final class Stream extends JSIterator {
+        private final String path;
+        private final Reader reader;
+        private final Parser parser;
+        private boolean inArray;
+        private boolean first = true;
+        private boolean done;
+
+        private Stream(Interpreter interpreter, String path, Reader reader) {
+            this.path = path;
+            this.reader = reader;
+            this.parser = new Parser(interpreter, reader);
+        }
+        static Stream open(Interpreter interpreter, String path) {
+            try {
+                Reader reader = new InputStreamReader(Files.newInputStream(interpreter.resolvePath(path)),
+                        StandardCharsets.UTF_8.newDecoder().onMalformedInput(CodingErrorAction.REPLACE));
+                Stream stream = new Stream(interpreter, path, reader);
+                if (stream.parser.peek() == '[') {
+                    stream.parser.position++;
+                    stream.inArray = true;
+                }
+                return stream;
+            } catch (NoSuchFileException e) {
+                throw interpreter.nativeError("Can't open " + path + ": no such file.");
+            } catch (IOException e) {
+                throw interpreter.nativeError("Can't read " + path + ": " + e.getMessage());
+            } catch (IllegalArgumentException e) {
+                throw interpreter.nativeError("Invalid path " + path + ".");
+            }
+        }
+
+        @Override
+        Object advance(Interpreter interpreter) {
+            if (done) return DONE;
+            try {
+                int c = parser.peek();
+                if (inArray) {
+                    if (c == ']') {
+                        close();
+                        return DONE;
+                    }
+                    if (!first) {
+                        if (c != ',') throw parser.error(c == -1 ? "Unexpected end of JSON input" : "Expected ',' or ']'");
+                        parser.position++;
+                    }
+                    first = false;
+                    return parser.value(1);
+                }
+                if (c == -1) {
+                    close();
+                    return DONE;
+                }
+                return parser.value(0);
+            } catch (IOException e) {
+                close();
+                throw interpreter.nativeError("Can't read " + path + ": " + e.getMessage());
+            }
+        }
+        @Override
+        void close() {
+            done = true;
+            try {
+                reader.close();
+            } catch (IOException ignored) {
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "<json stream " + path + ">";
+        }
+    }
+
+    // Appends JSON text to out; with a sink, full stretches of out are handed to it as they fill up.
+    static final class Writer {
+        private final Interpreter interpreter;
+        private final StringBuilder out;
+        private final OutputSink sink;
+        private final Set<Object> open = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        Writer(Interpreter interpreter, StringBuilder out, OutputSink sink) {
+            this.interpreter = interpreter;
+            this.out = out;
+            this.sink = sink;
+        }
+
+        void value(Object value) {
+            if (value instanceof String) {
+                string((String) value);
+            } else if (value instanceof Double) {
+                double number = (double) value;
+                if (Double.isFinite(number)) {
+                    NumberFormatter.append(out, number);
+                } else {
+                    out.append("null");
+                }
+            } else if (value instanceof Boolean) {
+                out.append((boolean) value ? "true" : "false");
+            } else if (value instanceof JSInstance) {
+                enter(value);
+                out.append('{');
+                boolean first = true;
+                for (Map.Entry<String, Object> field : ((JSInstance) value).fields().entrySet()) {
+                    if (field.getValue() instanceof JSCallable) continue;
+                    if (!first) out.append(',');
+                    first = false;
+                    string(field.getKey());
+                    out.append(':');
+                    value(field.getValue());
+                }
+                out.append('}');
+                open.remove(value);
+            } else if (value instanceof List) {
+                enter(value);
+                out.append('[');
+                List<?> elements = (List<?>) value;
+                for (int i = 0; i < elements.size(); i++) {
+                    if (i > 0) out.append(',');
+                    value(elements.get(i));
+                }
+                out.append(']');
+                open.remove(value);
+            } else if (value instanceof JSTypedArray) {
+                JSTypedArray array = (JSTypedArray) value;
+                out.append('[');
+                for (long i = 0; i < array.length(); i++) {
+                    if (i > 0) out.append(',');
+                    double number = array.get(i);
+                    if (Double.isFinite(number)) {
+                        NumberFormatter.append(out, number);
+                    } else {
+                        out.append("null");
+                    }
+                    if ((i & 1023) == 0) drain();
+                }
+                out.append(']');
+            } else {
+                out.append("null");
+            }
+            drain();
+        }
+        private void enter(Object value) {
+            if (!open.add(value)) throw interpreter.nativeError("Converting circular structure to JSON.");
+        }
+        private void string(String text) {
+            out.append('"');
+            int start = 0;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c >= 0x20 && c != '"' && c != '\\') continue;
+                out.append(text, start, i);
+                start = i + 1;
+                switch (c) {
+                    case '"':
+                        out.append("\\\"");
+                        break;
+                    case '\\':
+                        out.append("\\\\");
+                        break;
+                    case '\n':
+                        out.append("\\n");
+                        break;
+                    case '\r':
+                        out.append("\\r");
+                        break;
+                    case '\t':
+                        out.append("\\t");
+                        break;
+                    case '\b':
+                        out.append("\\b");
+                        break;
+                    case '\f':
+                        out.append("\\f");
+                        break;
+                    default:
+                        out.append("\\u00").append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 15, 16));
+                }
+            }
+            out.append(text, start, text.length()).append('"');
+        }
+        private void drain() {
+            if (sink != null && out.length() >= FLUSH_AT) {
+                sink.print(out);
+                out.setLength(0);
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package myJSInterpreter;
+
+import java.util.List;
+
+// A builtin implemented in Java, registered in the globals with Interpreter.defineNative.
+final class NativeFunction implements JSCallable {
+    interface Body {
+        Object call(Interpreter interpreter, List<Object> arguments);
+    }
+
+    private final String name;
+    private final int arity;
+    private final Body body;
+
+    NativeFunction(String name, int arity, Body body) {
+        this.name = name;
+        this.arity = arity;
+        this.body = body;
+    }
+    String name() {
+        return name;
+    }
+    @Override
+    public Object call(Interpreter interpreter, List<Object> arguments) {
+        return body.call(interpreter, arguments);
+    }
+    @Override
+    public int arity() {
+        return arity;
+    }
+    @Override
+    public String toString() {
+        return "<native fn>";
+    }
+}
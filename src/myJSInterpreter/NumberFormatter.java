@@ -0,0 +1,162 @@
+package myJSInterpreter;
+
+import java.math.BigInteger;
+
+// Shortest round-trip double-to-decimal conversion (Schubfach, R. Giulietti), printed the way
+// JavaScript's Number.prototype.toString prints numbers.
+final class NumberFormatter {
+    private static final int SMALL_INTS = 1024;
+    private static final String[] SMALL_INT_STRINGS = new String[SMALL_INTS];
+    static {
+        for (int i = 0; i < SMALL_INTS; i++) {
+            SMALL_INT_STRINGS[i] = Integer.toString(i);
+        }
+    }
+
+    private static final int Q_MIN = -1074;
+    private static final long C_MIN = 1L << 52;
+    private static final int BQ_MASK = 0x7FF;
+    private static final long T_MASK = (1L << 52) - 1;
+    private static final long C_TINY = 3;
+    private static final int K_MIN = -324;
+    private static final int K_MAX = 292;
+    private static final long MASK_63 = (1L << 63) - 1;
+    private static final double EXACT_INTEGER_LIMIT = 0x1p53;
+
+    private NumberFormatter() {}
+
+    static String toString(double value) {
+        if (value >= 0 && value < SMALL_INTS) {
+            int small = (int) value;
+            if (small == value) return SMALL_INT_STRINGS[small];
+        }
+        return append(new StringBuilder(24), value).toString();
+    }
+
+    static StringBuilder append(StringBuilder out, double value) {
+        if (value >= 0 && value < SMALL_INTS) {
+            int small = (int) value;
+            if (small == value) return out.append(SMALL_INT_STRINGS[small]);
+        }
+        if (value != value) return out.append("NaN");
+        if (value < 0) {
+            out.append('-');
+            value = -value;
+        }
+        if (value == Double.POSITIVE_INFINITY) return out.append("Infinity");
+        if (value < EXACT_INTEGER_LIMIT && (long) value == value) {
+            return out.append((long) value);
+        }
+        long bits = Double.doubleToRawLongBits(value);
+        long t = bits & T_MASK;
+        int bq = (int) (bits >>> 52) & BQ_MASK;
+        if (bq != 0) {
+            int mq = -Q_MIN + 1 - bq;
+            return toDecimal(out, -mq, C_MIN | t);
+        }
+        // The two smallest subnormals are too coarse for the general path; their shortest forms are fixed.
+        if (t < C_TINY) return t == 1 ? toChars(out, 5, -324) : toChars(out, 1, -323);
+        return toDecimal(out, Q_MIN, t);
+    }
+
+    private static StringBuilder toDecimal(StringBuilder out, int q, long c) {
+        int parity = (int) c & 0x1;
+        long cb = c << 2;
+        long cbr = cb + 2;
+        long cbl;
+        int k;
+        if (c != C_MIN | q == Q_MIN) {
+            cbl = cb - 2;
+            k = flog10pow2(q);
+        } else {
+            cbl = cb - 1;
+            k = flog10threeQuartersPow2(q);
+        }
+        int h = q + flog2pow10(-k) + 2;
+        long g1 = Powers.G[(k - K_MIN) << 1];
+        long g0 = Powers.G[(k - K_MIN) << 1 | 1];
+        long vb = roundOdd(g1, g0, cb << h);
+        long vbl = roundOdd(g1, g0, cbl << h);
+        long vbr = roundOdd(g1, g0, cbr << h);
+
+        long s = vb >> 2;
+        if (s >= 100) {
+            long sp10 = 10 * Math.multiplyHigh(s, 115_292_150_460_684_698L << 4);
+            long tp10 = sp10 + 10;
+            boolean upin = vbl + parity <= sp10 << 2;
+            boolean wpin = (tp10 << 2) + parity <= vbr;
+            if (upin != wpin) return toChars(out, upin ? sp10 : tp10, k);
+        }
+        long t = s + 1;
+        boolean uin = vbl + parity <= s << 2;
+        boolean win = (t << 2) + parity <= vbr;
+        if (uin != win) return toChars(out, uin ? s : t, k);
+        long cmp = vb - (s + t << 1);
+        return toChars(out, cmp < 0 || cmp == 0 && (s & 0x1) == 0 ? s : t, k);
+    }
+
+    private static long roundOdd(long g1, long g0, long cp) {
+        long x1 = Math.multiplyHigh(g0, cp);
+        long y0 = g1 * cp;
+        long y1 = Math.multiplyHigh(g1, cp);
+        long z = (y0 >>> 1) + x1;
+        long vbp = y1 + (z >>> 63);
+        return vbp | (z & MASK_63) + MASK_63 >>> 63;
+    }
+
+    // Writes f * 10^e using the layout rules of ECMAScript Number::toString.
+    private static StringBuilder toChars(StringBuilder out, long f, int e) {
+        while (f % 10 == 0) {
+            f /= 10;
+            e++;
+        }
+        int mark = out.length();
+        out.append(f);
+        int length = out.length() - mark;
+        int n = length + e;
+        if (length <= n && n <= 21) {
+            for (int i = length; i < n; i++) out.append('0');
+        } else if (0 < n && n <= 21) {
+            out.insert(mark + n, '.');
+        } else if (-6 < n && n <= 0) {
+            for (int i = n; i < 0; i++) out.insert(mark, '0');
+            out.insert(mark, "0.");
+        } else {
+            if (length > 1) out.insert(mark + 1, '.');
+            out.append('e').append(n - 1 < 0 ? '-' : '+').append(Math.abs(n - 1));
+        }
+        return out;
+    }
+
+    private static int flog10pow2(int e) {
+        return (int) (e * 661_971_961_083L >> 41);
+    }
+    private static int flog10threeQuartersPow2(int e) {
+        return (int) (e * 661_971_961_083L + -274_743_187_321L >> 41);
+    }
+    private static int flog2pow10(int e) {
+        return (int) (e * 913_124_641_741L >> 38);
+    }
+
+    // For each k, g = floor(10^-k * 2^-r) + 1 with r chosen so that 2^125 <= g < 2^126,
+    // split into two 63-bit halves. Built once on first use instead of shipping the table.
+    private static final class Powers {
+        static final long[] G = new long[(K_MAX - K_MIN + 1) << 1];
+        static {
+            BigInteger ten = BigInteger.TEN;
+            for (int k = K_MIN; k <= K_MAX; k++) {
+                int r = flog2pow10(-k) - 125;
+                BigInteger beta;
+                if (k <= 0) {
+                    BigInteger pow = ten.pow(-k);
+                    beta = r >= 0 ? pow.shiftRight(r) : pow.shiftLeft(-r);
+                } else {
+                    beta = BigInteger.ONE.shiftLeft(-r).divide(ten.pow(k));
+                }
+                BigInteger g = beta.add(BigInteger.ONE);
+                G[(k - K_MIN) << 1] = g.shiftRight(63).longValue();
+                G[(k - K_MIN) << 1 | 1] = g.longValue() & MASK_63;
+            }
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package myJSInterpreter;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Insertion-ordered hash table behind Map and Set, laid out like a compact dict: entries are
+// appended to parallel arrays in insertion order and an open-addressing index of int slots
+// (linear probing, at most half full) points into them. Number keys are kept as raw bits in a
+// long[] that exists only once one is added, so they are never boxed; strings compare by
+// reference before equals, and other values by identity. Removal leaves a hole in the entries
+// that the next resize squeezes out.
+final class OrderedTable {
+    private static final Object NUMBER = new Object();
+    private static final Object NULL = new Object();
+    private static final Object REMOVED = new Object();
+    private static final int MIN_SLOTS = 8;
+
+    private int[] slots = new int[MIN_SLOTS];
+    private int[] hashes = new int[MIN_SLOTS / 2];
+    private Object[] keys = new Object[MIN_SLOTS / 2];
+    private long[] numbers;
+    private Object[] values;
+    private int used;
+    private int size;
+    // While a loop walks the entries by number, resizes keep removed entries in place.
+    int pinned;
+    // Positions of iterators that may be resumed at any later time; a compacting resize renumbers
+    // them instead of being held off. Held weakly so a dropped iterator costs nothing once collected.
+    private List<WeakReference<Cursor>> cursors;
+
+    static final class Cursor {
+        int entry;
+    }
+
+    OrderedTable(boolean hasValues) {
+        if (hasValues) values = new Object[MIN_SLOTS / 2];
+    }
+
+    int size() {
+        return size;
+    }
+    // Entries are numbered 0 until end(); removed ones in between are skipped by isLive.
+    int end() {
+        return used;
+    }
+    boolean isLive(int entry) {
+        return keys[entry] != REMOVED;
+    }
+    Object keyAt(int entry) {
+        Object key = keys[entry];
+        if (key == NUMBER) return Double.longBitsToDouble(numbers[entry]);
+        return key == NULL ? null : key;
+    }
+    Object valueAt(int entry) {
+        return values[entry];
+    }
+
+    Object get(Object key) {
+        int entry = find(key);
+        return entry < 0 ? null : values[entry];
+    }
+    boolean contains(Object key) {
+        return find(key) >= 0;
+    }
+    void put(Object key, Object value) {
+        if (key instanceof Double) {
+            putNumber((double) key, value);
+            return;
+        }
+        Object stored = key == null ? NULL : key;
+        int hash = hashOf(stored);
+        int entry = find(stored, hash);
+        if (entry < 0) entry = append(stored, hash);
+        if (values != null) values[entry] = value;
+    }
+    void putNumber(double key, Object value) {
+        long bits = bitsOf(key);
+        int hash = mix(Long.hashCode(bits));
+        int entry = findNumber(bits, hash);
+        if (entry < 0) {
+            entry = append(NUMBER, hash);
+            if (numbers == null) numbers = new long[keys.length];
+            numbers[entry] = bits;
+        }
+        if (values != null) values[entry] = value;
+    }
+    boolean remove(Object key) {
+        int entry = find(key);
+        if (entry < 0) return false;
+        keys[entry] = REMOVED;
+        if (values != null) values[entry] = null;
+        size--;
+        return true;
+    }
+    void clear() {
+        Arrays.fill(slots, 0);
+        Arrays.fill(keys, 0, used, null);
+        if (values != null) Arrays.fill(values, 0, used, null);
+        used = 0;
+        size = 0;
+        if (cursors != null) {
+            for (WeakReference<Cursor> reference : cursors) {
+                Cursor cursor = reference.get();
+                if (cursor != null) cursor.entry = 0;
+            }
+        }
+    }
+    Cursor cursor() {
+        if (cursors == null) cursors = new ArrayList<>();
+        if (cursors.size() >= 16) cursors.removeIf(reference -> reference.get() == null);
+        Cursor cursor = new Cursor();
+        cursors.add(new WeakReference<>(cursor));
+        return cursor;
+    }
+    void release(Cursor cursor) {
+        if (cursors != null) cursors.removeIf(reference -> reference.get() == null || reference.get() == cursor);
+    }
+    // Approximate footprint of the table's own arrays, for heap accounting.
+    long bytes() {
+        long bytes = 48 + 16L * 3 + 4L * slots.length + 8L * keys.length;
+        if (numbers != null) bytes += 16 + 8L * numbers.length;
+        if (values != null) bytes += 16 + 4L * values.length;
+        return bytes;
+    }
+
+    private int find(Object key) {
+        if (key instanceof Double) {
+            long bits = bitsOf((double) key);
+            return findNumber(bits, mix(Long.hashCode(bits)));
+        }
+        Object stored = key == null ? NULL : key;
+        return find(stored, hashOf(stored));
+    }
+    private int find(Object key, int hash) {
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; ; slot = slot + 1 & mask) {
+            int entry = slots[slot] - 1;
+            if (entry < 0) return -1;
+            if (hashes[entry] != hash) continue;
+            Object candidate = keys[entry];
+            if (candidate == key || key instanceof String && key.equals(candidate)
+                    || key instanceof Boolean && key.equals(candidate)) {
+                return entry;
+            }
+        }
+    }
+    private int findNumber(long bits, int hash) {
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; ; slot = slot + 1 & mask) {
+            int entry = slots[slot] - 1;
+            if (entry < 0) return -1;
+            if (hashes[entry] == hash && keys[entry] == NUMBER && numbers[entry] == bits) return entry;
+        }
+    }
+    private int append(Object key, int hash) {
+        if (used == keys.length) resize();
+        int entry = used++;
+        keys[entry] = key;
+        hashes[entry] = hash;
+        place(entry, hash);
+        size++;
+        return entry;
+    }
+    private void place(int entry, int hash) {
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        while (slots[slot] != 0) slot = slot + 1 & mask;
+        slots[slot] = entry + 1;
+    }
+    // Grows when mostly live, otherwise just compacts; either way the index is rebuilt.
+    private void resize() {
+        int capacity = keys.length;
+        if (size >= used / 2 || pinned > 0) capacity *= 2;
+        Object[] oldKeys = keys;
+        int[] oldHashes = hashes;
+        long[] oldNumbers = numbers;
+        Object[] oldValues = values;
+        keys = new Object[capacity];
+        hashes = new int[capacity];
+        if (oldNumbers != null) numbers = new long[capacity];
+        if (oldValues != null) values = new Object[capacity];
+        slots = new int[capacity * 2];
+        int[] renumbered = cursors == null || cursors.isEmpty() || pinned > 0 ? null : new int[used + 1];
+        int live = 0;
+        for (int i = 0; i < used; i++) {
+            if (renumbered != null) renumbered[i] = live;
+            if (oldKeys[i] == REMOVED && pinned == 0) continue;
+            keys[live] = oldKeys[i];
+            hashes[live] = oldHashes[i];
+            if (oldNumbers != null) numbers[live] = oldNumbers[i];
+            if (oldValues != null) values[live] = oldValues[i];
+            if (oldKeys[i] != REMOVED) place(live, oldHashes[i]);
+            live++;
+        }
+        if (renumbered != null) {
+            renumbered[used] = live;
+            cursors.removeIf(reference -> reference.get() == null);
+            for (WeakReference<Cursor> reference : cursors) {
+                Cursor cursor = reference.get();
+                if (cursor != null) cursor.entry = renumbered[Math.min(cursor.entry, used)];
+            }
+        }
+        used = live;
+    }
+
+    // SameValueZero: -0 and 0 are one key, and every NaN is the same key.
+    private static long bitsOf(double key) {
+        return key == 0 ? 0L : Double.doubleToLongBits(key);
+    }
+    private static int hashOf(Object key) {
+        if (key instanceof String || key instanceof Boolean) return mix(key.hashCode());
+        return mix(System.identityHashCode(key));
+    }
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ h >>> 16;
+    }
+}
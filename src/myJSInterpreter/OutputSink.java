@@ -0,0 +1,8 @@
+package myJSInterpreter;
+
+// Destination for print output. The text passed to print may be a reused buffer, so copy it if it must outlive the call.
+public interface OutputSink {
+    void print(CharSequence text);
+    void println();
+    void flush();
+}
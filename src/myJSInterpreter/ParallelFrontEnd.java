@@ -0,0 +1,158 @@
+package myJSInterpreter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+public class ParallelFrontEnd {
+    static final int THRESHOLD = 1 << 20;
+    private static final int MIN_CHUNK = 1 << 16;
+    private static final String[] DECLARATIONS = {"function", "async", "class", "var"};
+
+    private static final class Chunk {
+        final int start;
+        final int end;
+        final int line;
+        final ErrorReporter reporter = ErrorReporter.buffered();
+        long scanNanos;
+        long parseNanos;
+        Chunk(int start, int end, int line) {
+            this.start = start;
+            this.end = end;
+            this.line = line;
+        }
+    }
+
+    static List<Statement> parse(String source, ErrorReporter reporter, RuntimeMetrics metrics) {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        List<Chunk> chunks = split(source,
+                Math.max(MIN_CHUNK, source.length() / (pool.getParallelism() * 4)));
+        List<Callable<List<Statement>>> tasks = new ArrayList<>();
+        for (Chunk chunk : chunks) {
+            tasks.add(() -> {
+                long start = System.nanoTime();
+                CompilePhaseEvent event = new CompilePhaseEvent();
+                event.begin();
+                TokenScanner scanner = new TokenScanner(source, chunk.start, chunk.end, chunk.line, chunk.reporter);
+                TokenParser parser = new TokenParser(scanner, chunk.reporter);
+                List<Statement> statements = parser.parse();
+                event.end();
+                if (event.shouldCommit()) {
+                    event.phase = "parse";
+                    event.characters = chunk.end - chunk.start;
+                    event.statements = statements.size();
+                    event.scanTime = parser.scanNanos();
+                    event.commit();
+                }
+                chunk.scanNanos = parser.scanNanos();
+                chunk.parseNanos = System.nanoTime() - start - chunk.scanNanos;
+                return statements;
+            });
+        }
+        List<Statement> statements = new ArrayList<>();
+        List<Future<List<Statement>>> results = pool.invokeAll(tasks);
+        for (int i = 0; i < chunks.size(); i++) {
+            Chunk chunk = chunks.get(i);
+            statements.addAll(join(results.get(i)));
+            chunk.reporter.replayInto(reporter);
+            if (RuntimeMetrics.ENABLED) {
+                metrics.scanNanos += chunk.scanNanos;
+                metrics.parseNanos += chunk.parseNanos;
+            }
+        }
+        return statements;
+    }
+
+    // Cuts only where a top-level declaration keyword follows a ';' or '}' at nesting depth zero,
+    // so every chunk is a run of complete top-level statements.
+    private static List<Chunk> split(String source, int minChunk) {
+        List<Chunk> chunks = new ArrayList<>();
+        int length = source.length();
+        int depth = 0;
+        int line = 1;
+        int chunkStart = 0;
+        int chunkLine = 1;
+        boolean boundary = true;
+        for (int i = 0; i < length; i++) {
+            char c = source.charAt(i);
+            switch (c) {
+                case '\n':
+                    line++;
+                    break;
+                case ' ':
+                case '\r':
+                case '\t':
+                    break;
+                case '"':
+                    i++;
+                    while (i < length && source.charAt(i) != '"') {
+                        if (source.charAt(i) == '\n') line++;
+                        i++;
+                    }
+                    boundary = false;
+                    break;
+                case '/':
+                    if (i + 1 < length && source.charAt(i + 1) == '/') {
+                        while (i + 1 < length && source.charAt(i + 1) != '\n') i++;
+                    } else {
+                        boundary = false;
+                    }
+                    break;
+                case '{':
+                case '(':
+                case '[':
+                    depth++;
+                    boundary = false;
+                    break;
+                case '}':
+                case ')':
+                case ']':
+                    depth--;
+                    boundary = c == '}' && depth == 0;
+                    break;
+                case ';':
+                    boundary = depth == 0;
+                    break;
+                default:
+                    if (boundary && i - chunkStart >= minChunk && startsDeclaration(source, i)) {
+                        chunks.add(new Chunk(chunkStart, i, chunkLine));
+                        chunkStart = i;
+                        chunkLine = line;
+                    }
+                    boundary = false;
+                    while (i + 1 < length && isAlphaNumeric(source.charAt(i + 1))) i++;
+                    break;
+            }
+        }
+        chunks.add(new Chunk(chunkStart, length, chunkLine));
+        return chunks;
+    }
+
+    private static boolean startsDeclaration(String source, int at) {
+        for (String keyword : DECLARATIONS) {
+            int end = at + keyword.length();
+            if (source.startsWith(keyword, at)
+                    && (end >= source.length() || !isAlphaNumeric(source.charAt(end)))) {
+                return true;
+            }
+        }
+        return false;
+    }
+    private static boolean isAlphaNumeric(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+    private static List<Statement> join(Future<List<Statement>> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
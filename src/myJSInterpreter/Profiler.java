@@ -0,0 +1,118 @@
+package myJSInterpreter;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.LockSupport;
+
+// Samples an interpreter's CallStack from a background thread and aggregates the samples
+// as collapsed stacks ("outer:line;inner:line count"), the input format of flame graph tools.
+public class Profiler implements Runnable {
+    private static final long SAMPLE_INTERVAL_NANOS = 1_000_000;
+    private static final int MAX_FRAMES = 256;
+    private static final int TOP_FUNCTIONS = 20;
+
+    private final CallStack stack;
+    private final Map<String, long[]> samples = new HashMap<>();
+    private final JSCallable[] callees = new JSCallable[MAX_FRAMES];
+    private final int[] positions = new int[MAX_FRAMES];
+    private final StringBuilder key = new StringBuilder();
+    private final Thread thread;
+    private volatile boolean running = true;
+    private long total = 0;
+
+    private Profiler(CallStack stack) {
+        this.stack = stack;
+        this.thread = new Thread(this, "js-profiler");
+        thread.setDaemon(true);
+    }
+    static Profiler start(CallStack stack) {
+        Profiler profiler = new Profiler(stack);
+        profiler.thread.start();
+        return profiler;
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            LockSupport.parkNanos(SAMPLE_INTERVAL_NANOS);
+            sample();
+        }
+    }
+    private void sample() {
+        int count = stack.snapshot(callees, positions);
+        key.setLength(0);
+        key.append("<script>");
+        for (int i = 0; i < count; i++) {
+            JSCallable callee = callees[i];
+            if (callee == null) break;
+            key.append(';').append(CallStack.nameOf(callee)).append(':').append(SourcePosition.line(positions[i]));
+        }
+        samples.computeIfAbsent(key.toString(), k -> new long[1])[0]++;
+        total++;
+    }
+
+    void stop() {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    void writeCollapsed(Path path) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, long[]> entry : samples.entrySet()) {
+                writer.write(entry.getKey());
+                writer.write(' ');
+                writer.write(Long.toString(entry.getValue()[0]));
+                writer.write('\n');
+            }
+        }
+    }
+    void writeSummary(PrintStream out) {
+        Map<String, long[]> self = new HashMap<>();
+        Map<String, long[]> inclusive = new HashMap<>();
+        for (Map.Entry<String, long[]> entry : samples.entrySet()) {
+            long hits = entry.getValue()[0];
+            String[] frames = entry.getKey().split(";");
+            Set<String> seen = new HashSet<>();
+            for (String frame : frames) {
+                String function = functionOf(frame);
+                if (seen.add(function)) inclusive.computeIfAbsent(function, k -> new long[1])[0] += hits;
+            }
+            self.computeIfAbsent(functionOf(frames[frames.length - 1]), k -> new long[1])[0] += hits;
+        }
+        List<String> functions = new ArrayList<>(inclusive.keySet());
+        functions.sort((a, b) -> Long.compare(selfOf(self, b), selfOf(self, a)));
+        out.println(total + " samples");
+        out.println("   self%  total%  function");
+        for (int i = 0; i < Math.min(TOP_FUNCTIONS, functions.size()); i++) {
+            String function = functions.get(i);
+            out.printf("  %5.1f%%  %5.1f%%  %s%n", percent(selfOf(self, function)),
+                    percent(inclusive.get(function)[0]), function);
+        }
+    }
+
+    private double percent(long hits) {
+        return total == 0 ? 0 : 100.0 * hits / total;
+    }
+    private static long selfOf(Map<String, long[]> self, String function) {
+        long[] hits = self.get(function);
+        return hits == null ? 0 : hits[0];
+    }
+    private static String functionOf(String frame) {
+        int colon = frame.lastIndexOf(':');
+        return colon < 0 ? frame : frame.substring(0, colon);
+    }
+}
@@ -1,9 +1,9 @@
 package myJSInterpreter;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Stack;
 
 public class Resolver implements Expr.Visitor<Void>, Statement.Visitor<Void> {
     private enum FunctionType {
@@ -14,15 +14,21 @@ public class Resolver implements Expr.Visitor<Void>, Statement.Visitor<Void> {
     }
     private enum ClassType {
         NONE,
-        CLASS
+        CLASS,
+        SUBCLASS
     }
     private ClassType currentClass = ClassType.NONE;
-    private final Stack<Map<String, Boolean>> scopes = new Stack<>();
-    private final Interpreter interpreter;
+    private final List<Map<String, Boolean>> scopes = new ArrayList<>();
+    private final ErrorReporter reporter;
     private FunctionType currentFunction = FunctionType.NONE;
+    private boolean inAsyncFunction = false;
+    private boolean inGenerator = false;
+    // The one await or yield the statement being resolved may contain, and how many were seen in this function.
+    private Expr allowedSuspension;
+    private int suspensions = 0;
 
-    Resolver(Interpreter interpreter) {
-        this.interpreter = interpreter;
+    Resolver(ErrorReporter reporter) {
+        this.reporter = reporter;
     }
     @Override
     public Void visitBlockStmt(Statement.Block stmt) {
@@ -31,6 +37,32 @@ public class Resolver implements Expr.Visitor<Void>, Statement.Visitor<Void> {
         endScope();
         return null;
     }
+    @Override
+    public Void visitTryStmt(Statement.Try stmt) {
+        beginScope();
+        resolve(stmt.body);
+        endScope();
+        if (stmt.catchBody != null) {
+            beginScope();
+            if (stmt.catchName != null) {
+                declare(stmt.catchName, stmt.position);
+                define(stmt.catchName);
+            }
+            resolve(stmt.catchBody);
+            endScope();
+        }
+        if (stmt.finallyBody != null) {
+            beginScope();
+            resolve(stmt.finallyBody);
+            endScope();
+        }
+        return null;
+    }
+    @Override
+    public Void visitThrowStmt(Statement.Throw stmt) {
+        resolve(stmt.value);
+        return null;
+    }
     void resolve(List<Statement> statements) {
         for (Statement statement : statements) {
             resolve(statement);
@@ -40,11 +72,14 @@ public class Resolver implements Expr.Visitor<Void>, Statement.Visitor<Void> {
         expr.accept(this);
     }
     private void resolve(Statement stmt) {
+        int before = suspensions;
+        allowedSuspension = ResumableFrame.suspension(stmt);
         stmt.accept(this);
+        if (suspensions != before) stmt.suspends = true;
     }
     @Override
     public Void visitVarStmt(Statement.Var stmt) {
-        declare(stmt.name);
+        declare(stmt.name, stmt.position);
         if (stmt.initializer != null) {
             resolve(stmt.initializer);
         }
@@ -54,7 +89,7 @@ public class Resolver implements Expr.Visitor<Void>, Statement.Visitor<Void> {
     @Override
     public Void visitAssignExpr(Expr.Assign expr) {
         resolve(expr.value);
-        resolveLocal(expr, expr.name);
+        expr.depth = resolveLocal(expr.name);
         return null;
     }
 
@@ -66,27 +101,47 @@ public class Resolver implements Expr.Visitor<Void>, Statement.Visitor<Void> {
 
     @Override
     public Void visitArrayExpr(Expr.Array expr) {
+        for (Expr element : expr.list) {
+            resolve(element);
+        }
         return null;
     }
 
     @Override
     public Void visitFunctionStmt(Statement.Function stmt) {
-        declare(stmt.name);
+        declare(stmt.name, stmt.position);
         define(stmt.name);
         resolveFunction(stmt, FunctionType.FUNCTION);
         return null;
     }
     private void resolveFunction(Statement.Function function, FunctionType type) {
         FunctionType enclosingFunction = currentFunction;
+        boolean enclosingAsync = inAsyncFunction;
+        boolean enclosingGenerator = inGenerator;
+        int enclosingSuspensions = suspensions;
         currentFunction = type;
+        inAsyncFunction = function.isAsync;
+        inGenerator = function.isGenerator;
+        if (function.isAsync && type == FunctionType.INITIALIZER) {
+            reporter.error(function.position, function.name, "A constructor can't be async.");
+        }
+        if (function.isGenerator && type == FunctionType.INITIALIZER) {
+            reporter.error(function.position, function.name, "A constructor can't be a generator.");
+        }
+        if (function.isAsync && function.isGenerator) {
+            reporter.error(function.position, function.name, "Async generators are not supported.");
+        }
         beginScope();
-        for (Token param : function.params) {
-            declare(param);
-            define(param);
+        for (Statement.Parameter param : function.params) {
+            declare(param.name, param.position);
+            define(param.name);
         }
         resolve(function.body);
         endScope();
         currentFunction = enclosingFunction;
+        inAsyncFunction = enclosingAsync;
+        inGenerator = enclosingGenerator;
+        suspensions = enclosingSuspensions;
     }
     @Override
     public Void visitExpressionStmt(Statement.Expression stmt) {
@@ -108,6 +163,15 @@ public class Resolver implements Expr.Visitor<Void>, Statement.Visitor<Void> {
 
     @Override
     public Void visitArrayGetExpr(Expr.ArrayGet expr) {
+        resolve(expr.name);
+        resolve(expr.index);
+        return null;
+    }
+
+    @Override
+    public Void visitArraySetExpr(Expr.ArraySet expr) {
+        resolve(expr.value);
+        resolve(expr.name);
         resolve(expr.index);
         return null;
     }
@@ -121,10 +185,23 @@ public class Resolver implements Expr.Visitor<Void>, Statement.Visitor<Void> {
     @Override
     public Void visitThisExpr(Expr.This expr) {
         if (currentClass == ClassType.NONE) {
-            JavaScript.error(expr.keyword, "Can't use 'this' outside of a class.");
+            reporter.error(expr.position, "this", "Can't use 'this' outside of a class.");
+            return null;
+        }
+        expr.depth = resolveLocal("this");
+        return null;
+    }
+    @Override
+    public Void visitSuperExpr(Expr.Super expr) {
+        if (currentClass == ClassType.NONE) {
+            reporter.error(expr.position, "super", "Can't use 'super' outside of a class.");
             return null;
         }
-        resolveLocal(expr, expr.keyword);
+        if (currentClass != ClassType.SUBCLASS) {
+            reporter.error(expr.position, "super", "Can't use 'super' in a class with no superclass.");
+            return null;
+        }
+        expr.depth = resolveLocal("super");
         return null;
     }
 
@@ -136,11 +213,11 @@ public class Resolver implements Expr.Visitor<Void>, Statement.Visitor<Void> {
     @Override
     public Void visitReturnStmt(Statement.Return stmt) {
         if (currentFunction == FunctionType.NONE) {
-            JavaScript.error(stmt.keyword, "Can't return from top-level code.");
+            reporter.error(stmt.position, "return", "Can't return from top-level code.");
         }
         if (stmt.value != null) {
             if (currentFunction == FunctionType.INITIALIZER) {
-                JavaScript.error(stmt.keyword, "Can't return a value from an initializer.");
+                reporter.error(stmt.position, "return", "Can't return a value from an initializer.");
             }
             resolve(stmt.value);
         }
@@ -151,18 +228,28 @@ public class Resolver implements Expr.Visitor<Void>, Statement.Visitor<Void> {
         ClassType enclosingClass = currentClass;
         currentClass = ClassType.CLASS;
 
-        declare(stmt.name);
+        declare(stmt.name, stmt.position);
         define(stmt.name);
+        if (stmt.superclass != null) {
+            if (stmt.superclass.name.equals(stmt.name)) {
+                reporter.error(stmt.superclass.position, stmt.superclass.name, "A class can't inherit from itself.");
+            }
+            currentClass = ClassType.SUBCLASS;
+            resolve(stmt.superclass);
+            beginScope();
+            innermostScope().put("super", true);
+        }
         beginScope();
-        scopes.peek().put("this", true);
+        innermostScope().put("this", true);
         for (Statement.Function method : stmt.methods) {
             FunctionType declaration = FunctionType.METHOD;
-            if (method.name.lexeme.equals("constructor")) {
+            if (method.name.equals("constructor")) {
                 declaration = FunctionType.INITIALIZER;
             }
             resolveFunction(method, declaration);
         }
         endScope();
+        if (stmt.superclass != null) endScope();
         currentClass = enclosingClass;
         return null;
     }
@@ -173,6 +260,20 @@ public class Resolver implements Expr.Visitor<Void>, Statement.Visitor<Void> {
         return null;
     }
     @Override
+    public Void visitForOfStmt(Statement.ForOf stmt) {
+        resolve(stmt.iterable);
+        beginScope();
+        if (stmt.target != null) {
+            resolve(stmt.target);
+        } else {
+            declare(stmt.name, stmt.position);
+            define(stmt.name);
+        }
+        resolve(stmt.body);
+        endScope();
+        return null;
+    }
+    @Override
     public Void visitBinaryExpr(Expr.Binary expr) {
         resolve(expr.left);
         resolve(expr.right);
@@ -215,39 +316,69 @@ public class Resolver implements Expr.Visitor<Void>, Statement.Visitor<Void> {
         return null;
     }
 
-    private void declare(Token name) {
+    @Override
+    public Void visitAwaitExpr(Expr.Await expr) {
+        if (!inAsyncFunction) {
+            reporter.error(expr.position, "await", "Can't use 'await' outside an async function.");
+        } else if (expr != allowedSuspension) {
+            reporter.error(expr.position, "await",
+                    "'await' must be a whole statement, initializer, assigned value or return value.");
+        }
+        allowedSuspension = null;
+        suspensions++;
+        resolve(expr.value);
+        return null;
+    }
+    @Override
+    public Void visitYieldExpr(Expr.Yield expr) {
+        if (!inGenerator) {
+            reporter.error(expr.position, "yield", "Can't use 'yield' outside a generator function.");
+        } else if (expr != allowedSuspension) {
+            reporter.error(expr.position, "yield",
+                    "'yield' must be a whole statement, initializer, assigned value or return value.");
+        }
+        allowedSuspension = null;
+        suspensions++;
+        if (expr.value != null) resolve(expr.value);
+        return null;
+    }
+
+    private void declare(String name, int position) {
         if (scopes.isEmpty()) return;
-        Map<String, Boolean> scope = scopes.peek();
-        if (scope.containsKey(name.lexeme)) {
-            JavaScript.error(name, "Already a variable with this name in this scope.");
+        Map<String, Boolean> scope = innermostScope();
+        if (scope.containsKey(name)) {
+            reporter.error(position, name, "Already a variable with this name in this scope.");
         }
-        scope.put(name.lexeme, false);
+        scope.put(name, false);
     }
-    private void define(Token name) {
+    private void define(String name) {
         if (scopes.isEmpty()) return;
-        scopes.peek().put(name.lexeme, true);
+        innermostScope().put(name, true);
     }
     @Override
     public Void visitVariableExpr(Expr.Variable expr) {
         if (!scopes.isEmpty() &&
-                scopes.peek().get(expr.name.lexeme) == Boolean.FALSE) {
-            JavaScript.error(expr.name, "Can't read local variable in its own initializer.");
+                innermostScope().get(expr.name) == Boolean.FALSE) {
+            reporter.error(expr.position, expr.name, "Can't read local variable in its own initializer.");
         }
-        resolveLocal(expr, expr.name);
+        expr.depth = resolveLocal(expr.name);
         return null;
     }
-    private void resolveLocal(Expr expr, Token name) {
+    private int resolveLocal(String name) {
         for (int i = scopes.size() - 1; i >= 0; i--) {
-            if (scopes.get(i).containsKey(name.lexeme)) {
-                interpreter.resolve(expr, scopes.size() - 1 - i);
-                return;
+            if (scopes.get(i).containsKey(name)) {
+                return scopes.size() - 1 - i;
             }
         }
+        return Expr.UNRESOLVED;
     }
     private void beginScope() {
-        scopes.push(new HashMap<String, Boolean>());
+        scopes.add(new HashMap<String, Boolean>());
     }
     private void endScope() {
-        scopes.pop();
+        scopes.remove(scopes.size() - 1);
+    }
+    private Map<String, Boolean> innermostScope() {
+        return scopes.get(scopes.size() - 1);
     }
 }
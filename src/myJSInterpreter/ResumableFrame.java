@@ -0,0 +1,275 @@
+package myJSInterpreter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Executes a function body one statement at a time so it can stop at an await or a yield and later
+// continue from the same point. Instead of the Java stack, the position inside nested blocks and loops is
+// kept in an explicit cursor stack; statements that cannot suspend are handed to the interpreter whole.
+// Only statement-level suspensions are supported: `await e;`, `var x = await e;`, `x = await e;`
+// and `return await e;`, and the same forms with yield.
+// Errors and returns that leave a suspending try statement are routed by unwinding the cursors
+// to its catch and finally blocks, so an awaited promise that rejects can be caught.
+final class ResumableFrame {
+    private static final int BODY = 0, CATCH = 1, FINALLY = 2;
+
+    private static final class Cursor {
+        final List<Statement> statements;
+        final Statement.While loop;
+        final Statement.ForOf forOf;
+        final JSIterator iterator;
+        final Environment environment;
+        int index;
+        // Set on the cursors of a try statement's blocks, with which block this is.
+        Statement.Try handler;
+        int stage;
+        // What a finally block carries on with when it ends: an error, a return, or neither.
+        RuntimeError error;
+        Return returning;
+        Cursor(List<Statement> statements, Statement.While loop, Environment environment) {
+            this(statements, loop, null, null, environment);
+        }
+        Cursor(List<Statement> statements, Statement.While loop, Statement.ForOf forOf, JSIterator iterator,
+               Environment environment) {
+            this.statements = statements;
+            this.loop = loop;
+            this.forOf = forOf;
+            this.iterator = iterator;
+            this.environment = environment;
+        }
+        Cursor(List<Statement> statements, Statement.Try handler, int stage, Environment environment) {
+            this(statements, null, environment);
+            this.handler = handler;
+            this.stage = stage;
+        }
+    }
+
+    private final Interpreter interpreter;
+    private final List<Cursor> cursors = new ArrayList<>();
+    private Statement pending;
+    private Environment pendingEnvironment;
+    private Object suspendedOn;
+    private Object result;
+
+    ResumableFrame(Interpreter interpreter, List<Statement> body, Environment environment) {
+        this.interpreter = interpreter;
+        cursors.add(new Cursor(body, null, environment));
+    }
+
+    // The await or yield expression that suspends this statement, or null when it runs straight through.
+    static Expr suspension(Statement stmt) {
+        Expr expr = null;
+        if (stmt instanceof Statement.Expression) {
+            expr = ((Statement.Expression) stmt).expression;
+            if (expr instanceof Expr.Assign) expr = ((Expr.Assign) expr).value;
+        } else if (stmt instanceof Statement.Var) {
+            expr = ((Statement.Var) stmt).initializer;
+        } else if (stmt instanceof Statement.Return) {
+            expr = ((Statement.Return) stmt).value;
+        }
+        return expr instanceof Expr.Await || expr instanceof Expr.Yield ? expr : null;
+    }
+
+    Object suspendedOn() {
+        return suspendedOn;
+    }
+    Object result() {
+        return result;
+    }
+
+    // Runs until the next suspension (true) or the end of the body (false). The value completes
+    // the statement that was suspended, if any.
+    boolean resume(Object value) {
+        if (pending != null) {
+            Statement stmt = pending;
+            pending = null;
+            try {
+                complete(stmt, value);
+            } catch (Return | RuntimeError e) {
+                if (!recover(e)) return false;
+            }
+        }
+        return run();
+    }
+    // Resumes by raising the error at the suspended statement.
+    boolean fail(RuntimeError error) {
+        pending = null;
+        if (!recover(error)) return false;
+        return run();
+    }
+
+    private void complete(Statement stmt, Object value) {
+        if (stmt instanceof Statement.Var) {
+            pendingEnvironment.define(((Statement.Var) stmt).name, value);
+        } else if (stmt instanceof Statement.Return) {
+            throw new Return(value);
+        } else if (((Statement.Expression) stmt).expression instanceof Expr.Assign) {
+            interpreter.assign((Expr.Assign) ((Statement.Expression) stmt).expression, pendingEnvironment, value);
+        }
+    }
+    // Hands an error or a return from the body to the innermost try statement it passes through.
+    // False when the body has returned; an error that nothing catches is rethrown.
+    private boolean recover(RuntimeException thrown) {
+        if (thrown instanceof ExecutionLimitError) {
+            abandon();
+            throw thrown;
+        }
+        Return returning = thrown instanceof Return ? (Return) thrown : null;
+        RuntimeError error = returning == null ? (RuntimeError) thrown : null;
+        if (unwind(error, returning)) return true;
+        if (error != null) throw error;
+        finish(returning.value);
+        return false;
+    }
+    // Pops cursors, closing the iterators of for-of loops left early, until a try block whose catch
+    // takes the error or whose finally must run first. False when none is left.
+    private boolean unwind(RuntimeError error, Return returning) {
+        while (!cursors.isEmpty()) {
+            Cursor cursor = cursors.remove(cursors.size() - 1);
+            if (cursor.iterator != null) cursor.iterator.close();
+            if (cursor.handler == null || cursor.stage == FINALLY) continue;
+            Statement.Try handler = cursor.handler;
+            Environment outer = cursor.environment.enclosing;
+            if (error != null && cursor.stage == BODY && handler.catchBody != null) {
+                Environment environment = block(outer, handler.position);
+                if (handler.catchName != null) environment.define(handler.catchName, interpreter.errorValue(error));
+                cursors.add(new Cursor(handler.catchBody, handler, CATCH, environment));
+                return true;
+            }
+            if (handler.finallyBody != null) {
+                Cursor block = new Cursor(handler.finallyBody, handler, FINALLY, block(outer, handler.position));
+                block.error = error;
+                block.returning = returning;
+                cursors.add(block);
+                return true;
+            }
+        }
+        return false;
+    }
+    // A try or catch block that ends normally goes on to the finally block; a finally block that
+    // ends normally carries on with the error or return that sent the body into it.
+    private void leave(Cursor cursor) {
+        Statement.Try handler = cursor.handler;
+        if (cursor.stage != FINALLY) {
+            if (handler.finallyBody != null) {
+                cursors.add(new Cursor(handler.finallyBody, handler, FINALLY,
+                        block(cursor.environment.enclosing, handler.position)));
+            }
+            return;
+        }
+        if (cursor.error != null) throw cursor.error;
+        if (cursor.returning != null) throw cursor.returning;
+    }
+    private Environment block(Environment enclosing, int position) {
+        if (RuntimeMetrics.ENABLED) interpreter.metrics.environmentAllocations++;
+        interpreter.charge(24 + AllocationSites.hashMapBytes(0), position);
+        return new Environment(enclosing);
+    }
+    // Ends the body early as if it returned where it is suspended: the finally blocks it is inside
+    // run, and the iterators of its for-of loops are closed. A yield inside one of those finally
+    // blocks gets null back and the block carries on.
+    void close() {
+        pending = null;
+        if (unwind(null, new Return(null))) {
+            boolean suspended = run();
+            while (suspended) suspended = resume(null);
+        }
+        cursors.clear();
+    }
+    // Drops the body without running anything more, closing the iterators of its for-of loops.
+    void abandon() {
+        for (Cursor cursor : cursors) {
+            if (cursor.iterator != null) cursor.iterator.close();
+        }
+        cursors.clear();
+        pending = null;
+    }
+    // Environments the body can still reach, for heap accounting.
+    void addEnvironments(List<Object> out) {
+        for (Cursor cursor : cursors) out.add(cursor.environment);
+        if (pendingEnvironment != null) out.add(pendingEnvironment);
+    }
+    private boolean finish(Object value) {
+        cursors.clear();
+        result = value;
+        return true;
+    }
+
+    private boolean run() {
+        while (!cursors.isEmpty()) {
+            try {
+                Cursor cursor = cursors.get(cursors.size() - 1);
+                Statement stmt = next(cursor);
+                if (stmt == null) {
+                    cursors.remove(cursors.size() - 1);
+                    if (cursor.handler != null) leave(cursor);
+                    continue;
+                }
+                if (enter(stmt, cursor.environment)) return true;
+            } catch (Return | RuntimeError e) {
+                if (!recover(e)) return false;
+            }
+        }
+        return false;
+    }
+    private Statement next(Cursor cursor) {
+        if (cursor.forOf != null) {
+            interpreter.tick(cursor.forOf.position);
+            Object value = cursor.iterator.nextValue(interpreter);
+            if (value == JSIterator.DONE) return null;
+            interpreter.bindLoopVariable(cursor.forOf, cursor.environment, value);
+            return cursor.forOf.body;
+        }
+        if (cursor.loop != null) {
+            interpreter.tick(cursor.loop.position);
+            return interpreter.isTruthy(interpreter.evaluate(cursor.loop.condition, cursor.environment))
+                    ? cursor.loop.body : null;
+        }
+        if (cursor.index == cursor.statements.size()) return null;
+        return cursor.statements.get(cursor.index++);
+    }
+    // Returns true when the statement suspended the frame.
+    private boolean enter(Statement stmt, Environment environment) {
+        while (stmt != null) {
+            if (!stmt.suspends) {
+                interpreter.execute(stmt, environment);
+                return false;
+            }
+            if (stmt instanceof Statement.Block) {
+                Statement.Block block = (Statement.Block) stmt;
+                cursors.add(new Cursor(block.statements, null, block(environment, block.position)));
+                return false;
+            }
+            if (stmt instanceof Statement.Try) {
+                Statement.Try handler = (Statement.Try) stmt;
+                cursors.add(new Cursor(handler.body, handler, BODY, block(environment, handler.position)));
+                return false;
+            }
+            if (stmt instanceof Statement.While) {
+                cursors.add(new Cursor(null, (Statement.While) stmt, environment));
+                return false;
+            }
+            if (stmt instanceof Statement.ForOf) {
+                Statement.ForOf loop = (Statement.ForOf) stmt;
+                JSIterator iterator = JSIterator.of(interpreter, interpreter.evaluate(loop.iterable, environment),
+                        loop.position);
+                interpreter.charge(24 + AllocationSites.hashMapBytes(1), loop.position);
+                cursors.add(new Cursor(null, null, loop, iterator, new Environment(environment)));
+                return false;
+            }
+            if (stmt instanceof Statement.If) {
+                Statement.If branch = (Statement.If) stmt;
+                stmt = interpreter.isTruthy(interpreter.evaluate(branch.condition, environment))
+                        ? branch.thenBranch : branch.elseBranch;
+                continue;
+            }
+            Expr suspension = suspension(stmt);
+            Expr value = suspension instanceof Expr.Await ? ((Expr.Await) suspension).value : ((Expr.Yield) suspension).value;
+            suspendedOn = value == null ? null : interpreter.evaluate(value, environment);
+            pending = stmt;
+            pendingEnvironment = environment;
+            return true;
+        }
+        return false;
+    }
+}
@@ -1,9 +1,13 @@
 package myJSInterpreter;
 
+// Scripts can catch these and throw in hot loops, so no Java stack trace is captured.
 public class RuntimeError extends RuntimeException {
-    final Token token;
-    public RuntimeError(Token token, String message) {
-        super(message);
-        this.token = token;
+    final int position;
+    public RuntimeError(int position, String message) {
+        super(message, null, false, false);
+        this.position = position;
+    }
+    int line() {
+        return SourcePosition.line(position);
     }
 }
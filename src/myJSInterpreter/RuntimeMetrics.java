@@ -0,0 +1,82 @@
+package myJSInterpreter;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+// Per-interpreter counters published as a platform MXBean. Counters are plain fields bumped by the
+// interpreter thread; JMX readers see them racily, which is fine for monitoring. Every increment site
+// is guarded by ENABLED, a constant the JIT folds away when -Djs.metrics is not set.
+public class RuntimeMetrics implements RuntimeMetricsMXBean {
+    static final boolean ENABLED = Boolean.getBoolean("js.metrics");
+    private static final AtomicInteger ids = new AtomicInteger();
+
+    long statementsExecuted;
+    long functionCalls;
+    long environmentAllocations;
+    long instanceCreations;
+    long arrayAllocations;
+    long runtimeErrors;
+    long scanNanos;
+    long parseNanos;
+    long resolveNanos;
+    long executeNanos;
+    long peakHeapBytes;
+    private ObjectName name;
+
+    static RuntimeMetrics register() {
+        RuntimeMetrics metrics = new RuntimeMetrics();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            metrics.name = new ObjectName("myJSInterpreter:type=Interpreter,id=" + ids.incrementAndGet());
+            server.registerMBean(metrics, metrics.name);
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register interpreter metrics", e);
+        }
+        return metrics;
+    }
+    void unregister() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException ignored) {
+        }
+    }
+
+    @Override
+    public long getStatementsExecuted() { return statementsExecuted; }
+    @Override
+    public long getFunctionCalls() { return functionCalls; }
+    @Override
+    public long getEnvironmentAllocations() { return environmentAllocations; }
+    @Override
+    public long getInstanceCreations() { return instanceCreations; }
+    @Override
+    public long getArrayAllocations() { return arrayAllocations; }
+    @Override
+    public long getRuntimeErrors() { return runtimeErrors; }
+    @Override
+    public long getScanTimeNanos() { return scanNanos; }
+    @Override
+    public long getParseTimeNanos() { return parseNanos; }
+    @Override
+    public long getResolveTimeNanos() { return resolveNanos; }
+    @Override
+    public long getExecuteTimeNanos() { return executeNanos; }
+    @Override
+    public long getPeakHeapBytes() { return peakHeapBytes; }
+    @Override
+    public void reset() {
+        statementsExecuted = 0;
+        functionCalls = 0;
+        environmentAllocations = 0;
+        instanceCreations = 0;
+        arrayAllocations = 0;
+        runtimeErrors = 0;
+        scanNanos = 0;
+        parseNanos = 0;
+        resolveNanos = 0;
+        executeNanos = 0;
+    }
+}
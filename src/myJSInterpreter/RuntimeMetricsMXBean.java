@@ -0,0 +1,16 @@
+package myJSInterpreter;
+
+public interface RuntimeMetricsMXBean {
+    long getStatementsExecuted();
+    long getFunctionCalls();
+    long getEnvironmentAllocations();
+    long getInstanceCreations();
+    long getArrayAllocations();
+    long getRuntimeErrors();
+    long getScanTimeNanos();
+    long getParseTimeNanos();
+    long getResolveTimeNanos();
+    long getExecuteTimeNanos();
+    long getPeakHeapBytes();
+    void reset();
+}
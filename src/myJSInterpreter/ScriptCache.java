@@ -0,0 +1,39 @@
+package myJSInterpreter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Resolved syntax trees by script path, reused while the file's size and modification time are
+// unchanged. The trees are never modified while running, so any number of contexts share them.
+final class ScriptCache {
+    private static final class CompiledScript {
+        final FileTime modified;
+        final long size;
+        final List<Statement> statements;
+        CompiledScript(FileTime modified, long size, List<Statement> statements) {
+            this.modified = modified;
+            this.size = size;
+            this.statements = statements;
+        }
+    }
+
+    private final ConcurrentHashMap<Path, CompiledScript> scripts = new ConcurrentHashMap<>();
+
+    // Compile errors go to the context's reporter and give null; failed compiles aren't cached.
+    List<Statement> compile(JSContext context, Path file) throws IOException {
+        Path key = file.toAbsolutePath().normalize();
+        FileTime modified = Files.getLastModifiedTime(key);
+        long size = Files.size(key);
+        CompiledScript cached = scripts.get(key);
+        if (cached != null && cached.modified.equals(modified) && cached.size == size) {
+            return cached.statements;
+        }
+        List<Statement> statements = context.compile(Files.readString(key));
+        if (statements != null) scripts.put(key, new CompiledScript(modified, size, statements));
+        return statements;
+    }
+}
@@ -0,0 +1,17 @@
+package myJSInterpreter;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("myJSInterpreter.RuntimeError")
+@Label("Script Runtime Error")
+@Category("JavaScript Interpreter")
+@StackTrace(false)
+final class ScriptErrorEvent extends jdk.jfr.Event {
+    @Label("Message")
+    String message;
+    @Label("Line")
+    int line;
+}
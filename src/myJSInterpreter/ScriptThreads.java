@@ -0,0 +1,47 @@
+package myJSInterpreter;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+// Creates threads for running scripts: virtual threads when the running JVM has them (Java 21+),
+// daemon platform threads otherwise. Looked up reflectively so the sources still build on older JDKs.
+final class ScriptThreads {
+    private static final MethodHandle OF_VIRTUAL;
+    private static final MethodHandle UNSTARTED;
+    static {
+        MethodHandle ofVirtual = null;
+        MethodHandle unstarted = null;
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            ofVirtual = lookup.findStatic(Thread.class, "ofVirtual",
+                    MethodType.methodType(Class.forName("java.lang.Thread$Builder$OfVirtual")));
+            unstarted = lookup.findVirtual(builder, "unstarted",
+                    MethodType.methodType(Thread.class, Runnable.class));
+        } catch (ReflectiveOperationException e) {
+            ofVirtual = null;
+            unstarted = null;
+        }
+        OF_VIRTUAL = ofVirtual;
+        UNSTARTED = unstarted;
+    }
+
+    private ScriptThreads() {}
+
+    static boolean virtual() {
+        return OF_VIRTUAL != null;
+    }
+    static Thread newThread(Runnable task) {
+        if (OF_VIRTUAL != null) {
+            try {
+                return (Thread) UNSTARTED.invoke(OF_VIRTUAL.invoke(), task);
+            } catch (Throwable e) {
+                throw new IllegalStateException("Could not create a virtual thread", e);
+            }
+        }
+        Thread thread = new Thread(task);
+        thread.setDaemon(true);
+        return thread;
+    }
+}
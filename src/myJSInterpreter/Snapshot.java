@@ -0,0 +1,887 @@
+package myJSInterpreter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Saves the globals of an interpreter, with everything reachable from them (functions and their
+// closures, classes, instances, arrays, Maps and Sets, typed arrays and the syntax trees behind
+// them), and restores them into
+// another interpreter far faster than re-running the script that built them. Builtins are written
+// by name and rebound to the restoring interpreter's own. Strings are written once and interned
+// on the way back in; functions, environments and objects keep their identity and cycles.
+final class Snapshot {
+    private static final int MAGIC = 0x4A53534E;
+    private static final int VERSION = 12;
+    private static final int BUFFER = 1 << 16;
+
+    private static final byte NULL = 0, TRUE = 1, FALSE = 2, NUMBER = 3, STRING = 4, REFERENCE = 5,
+            GLOBALS = 6, BUILTIN = 7, ENVIRONMENT = 8, FUNCTION = 9, CLASS = 10, INSTANCE = 11,
+            ARRAY = 12, FROZEN_ARRAY = 13, COLLECTION = 14, TYPED_ARRAY = 15;
+    private static final byte S_RETURN = 1, S_FUNCTION = 2, S_BLOCK = 3, S_CLASS = 4, S_EXPRESSION = 5,
+            S_IF = 6, S_PRINT = 7, S_VAR = 8, S_WHILE = 9, S_DECLARATION = 10,
+            S_FOR_OF = 11, S_TRY = 12, S_THROW = 13;
+    private static final byte E_ASSIGN = 1, E_INC_DEC = 2, E_ARRAY = 3, E_BINARY = 4, E_CALL = 5, E_GET = 6,
+            E_ARRAY_GET = 7, E_SET = 8, E_THIS = 9, E_LOGICAL = 10, E_GROUPING = 11, E_LITERAL = 12,
+            E_UNARY = 13, E_TERNARY = 14, E_VARIABLE = 15, E_AWAIT = 16,
+            E_ARRAY_SET = 17, E_YIELD = 18, E_SUPER = 19;
+    private static final TokenType[] TOKEN_TYPES = TokenType.values();
+
+    private Snapshot() {}
+
+    static void save(Interpreter interpreter, Path file) throws IOException {
+        try {
+            write(interpreter, file);
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+    private static void write(Interpreter interpreter, Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), BUFFER))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            Writer writer = new Writer(interpreter, out);
+            Map<String, Object> globals = interpreter.globalEnv.snapshot();
+            out.writeInt(globals.size());
+            for (Map.Entry<String, Object> global : globals.entrySet()) {
+                writer.global = global.getKey();
+                writer.string(global.getKey());
+                writer.value(global.getValue());
+            }
+            out.writeInt(interpreter.declarations.size());
+            for (Statement declaration : interpreter.declarations) {
+                writer.statement(declaration);
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    static void restore(Interpreter interpreter, Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException(file + " is not a snapshot written by this version.");
+            }
+            Reader reader = new Reader(interpreter, in);
+            int globals = in.readInt();
+            for (int i = 0; i < globals; i++) {
+                String name = reader.string();
+                interpreter.globalEnv.define(name, reader.value());
+            }
+            int declarations = in.readInt();
+            for (int i = 0; i < declarations; i++) {
+                interpreter.declarations.add(reader.statement());
+            }
+        } catch (ClassCastException | IndexOutOfBoundsException e) {
+            throw new IOException(file + " is not a valid snapshot.", e);
+        }
+    }
+
+    private static final class Writer implements Expr.Visitor<Void>, Statement.Visitor<Void> {
+        private final Interpreter interpreter;
+        private final DataOutputStream out;
+        private final Map<String, Integer> strings = new HashMap<>();
+        private final Map<Object, Integer> objects = new IdentityHashMap<>();
+        private final Map<Object, String> builtins = new IdentityHashMap<>();
+        // The global being written, named when something reachable from it can't be saved.
+        String global;
+
+        Writer(Interpreter interpreter, DataOutputStream out) {
+            this.interpreter = interpreter;
+            this.out = out;
+            for (Map.Entry<String, Object> builtin : interpreter.builtins.entrySet()) {
+                builtins.put(builtin.getValue(), builtin.getKey());
+            }
+        }
+
+        void string(String value) throws IOException {
+            Integer index = strings.get(value);
+            if (index != null) {
+                out.writeInt(index);
+                return;
+            }
+            strings.put(value, strings.size());
+            // Length-prefixed bytes rather than writeUTF, which stops at 64K.
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(-1);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+        // Writes the reference if the object was seen before; otherwise numbers it and returns false.
+        private boolean reference(Object object) throws IOException {
+            Integer index = objects.get(object);
+            if (index != null) {
+                out.writeByte(REFERENCE);
+                out.writeInt(index);
+                return true;
+            }
+            objects.put(object, objects.size());
+            return false;
+        }
+
+        void value(Object value) throws IOException {
+            if (value == null) {
+                out.writeByte(NULL);
+            } else if (value instanceof Boolean) {
+                out.writeByte((boolean) value ? TRUE : FALSE);
+            } else if (value instanceof Double) {
+                out.writeByte(NUMBER);
+                out.writeDouble((double) value);
+            } else if (value instanceof String) {
+                out.writeByte(STRING);
+                string((String) value);
+            } else if (builtins.containsKey(value)) {
+                out.writeByte(BUILTIN);
+                string(builtins.get(value));
+            } else if (value instanceof JSFunction) {
+                if (reference(value)) return;
+                JSFunction function = (JSFunction) value;
+                out.writeByte(FUNCTION);
+                out.writeBoolean(function.isInitializer());
+                statement(function.declaration());
+                environment(function.closure());
+            } else if (value instanceof JSClass) {
+                if (reference(value)) return;
+                JSClass klass = (JSClass) value;
+                out.writeByte(CLASS);
+                string(klass.name);
+                value(klass.superclass);
+                out.writeInt(klass.methods().size());
+                for (JSFunction method : klass.methods()) value(method);
+            } else if (value instanceof JSInstance) {
+                if (reference(value)) return;
+                JSInstance instance = (JSInstance) value;
+                out.writeByte(INSTANCE);
+                out.writeBoolean(instance.sealed);
+                value(instance.klass());
+                out.writeInt(instance.fields().size());
+                for (Map.Entry<String, Object> field : instance.fields().entrySet()) {
+                    string(field.getKey());
+                    value(field.getValue());
+                }
+            } else if (value instanceof List) {
+                if (reference(value)) return;
+                List<?> array = (List<?>) value;
+                out.writeByte(value instanceof FrozenArray ? FROZEN_ARRAY : ARRAY);
+                out.writeInt(array.size());
+                for (Object element : array) value(element);
+            } else if (value instanceof JSCollection) {
+                if (reference(value)) return;
+                JSCollection collection = (JSCollection) value;
+                OrderedTable table = collection.table;
+                out.writeByte(COLLECTION);
+                out.writeBoolean(collection.isMap());
+                out.writeBoolean(collection.sealed);
+                out.writeInt(table.size());
+                for (int i = 0; i < table.end(); i++) {
+                    if (!table.isLive(i)) continue;
+                    value(table.keyAt(i));
+                    if (collection.isMap()) value(table.valueAt(i));
+                }
+            } else if (value instanceof JSTypedArray && !((JSTypedArray) value).isMapped()) {
+                if (reference(value)) return;
+                JSTypedArray array = (JSTypedArray) value;
+                out.writeByte(TYPED_ARRAY);
+                out.writeByte(array.kind().ordinal());
+                out.writeBoolean(array.sealed);
+                out.writeLong(array.length());
+                for (long i = 0; i < array.length(); i++) {
+                    if (array.kind() == JSTypedArray.Kind.FLOAT64) {
+                        out.writeDouble(array.get(i));
+                    } else {
+                        out.writeInt((int) array.get(i));
+                    }
+                }
+            } else if (value instanceof JSTypedArray) {
+                throw new IOException("Can't snapshot the file-mapped " + ((JSTypedArray) value).kindName()
+                        + " reachable from global '" + global + "'.");
+            } else {
+                throw new IOException("Can't snapshot " + value + ", reachable from global '" + global + "'.");
+            }
+        }
+        private void environment(Environment environment) throws IOException {
+            if (environment == null) {
+                out.writeByte(NULL);
+                return;
+            }
+            if (environment == interpreter.globalEnv) {
+                out.writeByte(GLOBALS);
+                return;
+            }
+            if (reference(environment)) return;
+            out.writeByte(ENVIRONMENT);
+            out.writeBoolean(environment.sealed);
+            environment(environment.enclosing);
+            Map<String, Object> values = environment.snapshot();
+            out.writeInt(values.size());
+            for (Map.Entry<String, Object> binding : values.entrySet()) {
+                string(binding.getKey());
+                value(binding.getValue());
+            }
+        }
+
+        void statement(Statement stmt) throws IOException {
+            if (stmt == null) {
+                out.writeByte(NULL);
+                return;
+            }
+            stmt.accept(this);
+            out.writeBoolean(stmt.suspends);
+        }
+        private void statements(List<? extends Statement> statements) throws IOException {
+            out.writeInt(statements.size());
+            for (Statement stmt : statements) statement(stmt);
+        }
+        private void expr(Expr expr) throws IOException {
+            if (expr == null) {
+                out.writeByte(NULL);
+            } else {
+                expr.accept(this);
+            }
+        }
+        private void exprs(List<Expr> exprs) throws IOException {
+            out.writeInt(exprs.size());
+            for (Expr expr : exprs) expr(expr);
+        }
+        private void tag(byte tag, int position) throws IOException {
+            out.writeByte(tag);
+            out.writeInt(position);
+        }
+
+        // The visitors can't throw IOException, so they tunnel it out unchecked.
+        private interface Body {
+            void write() throws IOException;
+        }
+        private Void write(Body body) {
+            try {
+                body.write();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitReturnStmt(Statement.Return stmt) {
+            return write(() -> {
+                tag(S_RETURN, stmt.position);
+                expr(stmt.value);
+            });
+        }
+        @Override
+        public Void visitFunctionStmt(Statement.Function stmt) {
+            return write(() -> {
+                Integer index = objects.get(stmt);
+                if (index != null) {
+                    out.writeByte(S_DECLARATION);
+                    out.writeInt(index);
+                    return;
+                }
+                objects.put(stmt, objects.size());
+                tag(S_FUNCTION, stmt.position);
+                string(stmt.name);
+                out.writeBoolean(stmt.isAsync);
+                out.writeBoolean(stmt.isGenerator);
+                out.writeInt(stmt.params.size());
+                for (Statement.Parameter param : stmt.params) {
+                    string(param.name);
+                    out.writeInt(param.position);
+                }
+                statements(stmt.body);
+            });
+        }
+        @Override
+        public Void visitBlockStmt(Statement.Block stmt) {
+            return write(() -> {
+                tag(S_BLOCK, stmt.position);
+                statements(stmt.statements);
+            });
+        }
+        @Override
+        public Void visitClassStmt(Statement.Class stmt) {
+            return write(() -> {
+                tag(S_CLASS, stmt.position);
+                string(stmt.name);
+                expr(stmt.superclass);
+                statements(stmt.methods);
+            });
+        }
+        @Override
+        public Void visitExpressionStmt(Statement.Expression stmt) {
+            return write(() -> {
+                out.writeByte(S_EXPRESSION);
+                expr(stmt.expression);
+            });
+        }
+        @Override
+        public Void visitIfStmt(Statement.If stmt) {
+            return write(() -> {
+                out.writeByte(S_IF);
+                expr(stmt.condition);
+                statement(stmt.thenBranch);
+                statement(stmt.elseBranch);
+            });
+        }
+        @Override
+        public Void visitPrintStmt(Statement.Print stmt) {
+            return write(() -> {
+                out.writeByte(S_PRINT);
+                expr(stmt.expression);
+            });
+        }
+        @Override
+        public Void visitVarStmt(Statement.Var stmt) {
+            return write(() -> {
+                tag(S_VAR, stmt.position);
+                string(stmt.name);
+                expr(stmt.initializer);
+            });
+        }
+        @Override
+        public Void visitWhileStmt(Statement.While stmt) {
+            return write(() -> {
+                tag(S_WHILE, stmt.position);
+                expr(stmt.condition);
+                statement(stmt.body);
+            });
+        }
+        @Override
+        public Void visitForOfStmt(Statement.ForOf stmt) {
+            return write(() -> {
+                tag(S_FOR_OF, stmt.position);
+                out.writeBoolean(stmt.target != null);
+                if (stmt.target != null) {
+                    expr(stmt.target);
+                } else {
+                    string(stmt.name);
+                }
+                expr(stmt.iterable);
+                statement(stmt.body);
+            });
+        }
+        @Override
+        public Void visitTryStmt(Statement.Try stmt) {
+            return write(() -> {
+                tag(S_TRY, stmt.position);
+                statements(stmt.body);
+                out.writeBoolean(stmt.catchBody != null);
+                if (stmt.catchBody != null) {
+                    out.writeBoolean(stmt.catchName != null);
+                    if (stmt.catchName != null) string(stmt.catchName);
+                    statements(stmt.catchBody);
+                }
+                out.writeBoolean(stmt.finallyBody != null);
+                if (stmt.finallyBody != null) statements(stmt.finallyBody);
+            });
+        }
+        @Override
+        public Void visitThrowStmt(Statement.Throw stmt) {
+            return write(() -> {
+                tag(S_THROW, stmt.position);
+                expr(stmt.value);
+            });
+        }
+
+        @Override
+        public Void visitAssignExpr(Expr.Assign expr) {
+            return write(() -> {
+                tag(E_ASSIGN, expr.position);
+                string(expr.name);
+                out.writeInt(expr.depth);
+                expr(expr.value);
+            });
+        }
+        @Override
+        public Void visitIncDecExpr(Expr.IncDec expr) {
+            return write(() -> {
+                tag(E_INC_DEC, expr.position);
+                string(expr.name);
+                out.writeByte(expr.operator.ordinal());
+                expr(expr.value);
+            });
+        }
+        @Override
+        public Void visitArrayExpr(Expr.Array expr) {
+            return write(() -> {
+                tag(E_ARRAY, expr.position);
+                exprs(expr.list);
+            });
+        }
+        @Override
+        public Void visitBinaryExpr(Expr.Binary expr) {
+            return write(() -> {
+                tag(E_BINARY, expr.position);
+                out.writeByte(expr.operator.ordinal());
+                expr(expr.left);
+                expr(expr.right);
+            });
+        }
+        @Override
+        public Void visitCallExpr(Expr.Call expr) {
+            return write(() -> {
+                tag(E_CALL, expr.position);
+                expr(expr.callee);
+                exprs(expr.arguments);
+            });
+        }
+        @Override
+        public Void visitGetExpr(Expr.Get expr) {
+            return write(() -> {
+                tag(E_GET, expr.position);
+                string(expr.name);
+                expr(expr.object);
+            });
+        }
+        @Override
+        public Void visitArrayGetExpr(Expr.ArrayGet expr) {
+            return write(() -> {
+                tag(E_ARRAY_GET, expr.position);
+                expr(expr.name);
+                expr(expr.index);
+            });
+        }
+        @Override
+        public Void visitArraySetExpr(Expr.ArraySet expr) {
+            return write(() -> {
+                tag(E_ARRAY_SET, expr.position);
+                expr(expr.name);
+                expr(expr.index);
+                expr(expr.value);
+            });
+        }
+        @Override
+        public Void visitSetExpr(Expr.Set expr) {
+            return write(() -> {
+                tag(E_SET, expr.position);
+                string(expr.name);
+                expr(expr.object);
+                expr(expr.value);
+            });
+        }
+        @Override
+        public Void visitThisExpr(Expr.This expr) {
+            return write(() -> {
+                tag(E_THIS, expr.position);
+                out.writeInt(expr.depth);
+            });
+        }
+        @Override
+        public Void visitSuperExpr(Expr.Super expr) {
+            return write(() -> {
+                tag(E_SUPER, expr.position);
+                string(expr.method);
+                out.writeInt(expr.depth);
+            });
+        }
+        @Override
+        public Void visitLogicalExpr(Expr.Logical expr) {
+            return write(() -> {
+                tag(E_LOGICAL, expr.position);
+                out.writeByte(expr.operator.ordinal());
+                expr(expr.left);
+                expr(expr.right);
+            });
+        }
+        @Override
+        public Void visitGroupingExpr(Expr.Grouping expr) {
+            return write(() -> {
+                out.writeByte(E_GROUPING);
+                expr(expr.expression);
+            });
+        }
+        @Override
+        public Void visitLiteralExpr(Expr.Literal expr) {
+            return write(() -> {
+                out.writeByte(E_LITERAL);
+                value(expr.value);
+            });
+        }
+        @Override
+        public Void visitUnaryExpr(Expr.Unary expr) {
+            return write(() -> {
+                tag(E_UNARY, expr.position);
+                out.writeByte(expr.operator.ordinal());
+                expr(expr.right);
+            });
+        }
+        @Override
+        public Void visitTernaryExpr(Expr.Ternary expr) {
+            return write(() -> {
+                out.writeByte(E_TERNARY);
+                expr(expr.first);
+                expr(expr.left);
+                expr(expr.right);
+            });
+        }
+        @Override
+        public Void visitVariableExpr(Expr.Variable expr) {
+            return write(() -> {
+                tag(E_VARIABLE, expr.position);
+                string(expr.name);
+                out.writeInt(expr.depth);
+            });
+        }
+        @Override
+        public Void visitAwaitExpr(Expr.Await expr) {
+            return write(() -> {
+                tag(E_AWAIT, expr.position);
+                expr(expr.value);
+            });
+        }
+        @Override
+        public Void visitYieldExpr(Expr.Yield expr) {
+            return write(() -> {
+                tag(E_YIELD, expr.position);
+                expr(expr.value);
+            });
+        }
+    }
+
+    private static final class Reader {
+        private final Interpreter interpreter;
+        private final DataInputStream in;
+        private final List<String> strings = new ArrayList<>();
+        private final List<Object> objects = new ArrayList<>();
+
+        Reader(Interpreter interpreter, DataInputStream in) {
+            this.interpreter = interpreter;
+            this.in = in;
+        }
+
+        String string() throws IOException {
+            int index = in.readInt();
+            if (index >= 0) return strings.get(index);
+            int length = in.readInt();
+            if (length < 0) throw new IOException("Corrupt snapshot string.");
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            String value = new String(bytes, StandardCharsets.UTF_8);
+            strings.add(value);
+            return value;
+        }
+        private <T> T register(T object) {
+            objects.add(object);
+            return object;
+        }
+
+        Object value() throws IOException {
+            byte tag = in.readByte();
+            switch (tag) {
+                case NULL: return null;
+                case TRUE: return true;
+                case FALSE: return false;
+                case NUMBER: return in.readDouble();
+                case STRING: return string();
+                case REFERENCE: return objects.get(in.readInt());
+                case BUILTIN: {
+                    String name = string();
+                    Object builtin = interpreter.builtins.get(name);
+                    if (builtin == null) throw new IOException("Snapshot needs missing builtin '" + name + "'.");
+                    return builtin;
+                }
+                case GLOBALS: return interpreter.globalEnv;
+                case ENVIRONMENT: {
+                    boolean sealed = in.readBoolean();
+                    int index = objects.size();
+                    objects.add(null);
+                    Environment environment = new Environment((Environment) value());
+                    objects.set(index, environment);
+                    environment.sealed = sealed;
+                    int size = in.readInt();
+                    for (int i = 0; i < size; i++) {
+                        String name = string();
+                        environment.define(name, value());
+                    }
+                    return environment;
+                }
+                case FUNCTION: {
+                    int index = objects.size();
+                    objects.add(null);
+                    boolean isInitializer = in.readBoolean();
+                    Statement.Function declaration = (Statement.Function) statement();
+                    JSFunction function = new JSFunction(declaration, (Environment) value(), isInitializer);
+                    objects.set(index, function);
+                    return function;
+                }
+                case CLASS: {
+                    int index = objects.size();
+                    objects.add(null);
+                    String name = string();
+                    JSClass superclass = (JSClass) value();
+                    int size = in.readInt();
+                    Map<String, JSFunction> methods = new HashMap<>();
+                    for (int i = 0; i < size; i++) {
+                        JSFunction method = (JSFunction) value();
+                        methods.put(method.name(), method);
+                    }
+                    JSClass klass = new JSClass(name, superclass, methods);
+                    objects.set(index, klass);
+                    return klass;
+                }
+                case INSTANCE: {
+                    int index = objects.size();
+                    objects.add(null);
+                    boolean sealed = in.readBoolean();
+                    JSInstance instance = new JSInstance((JSClass) value());
+                    objects.set(index, instance);
+                    instance.sealed = sealed;
+                    int size = in.readInt();
+                    for (int i = 0; i < size; i++) {
+                        String name = string();
+                        instance.set(name, value());
+                    }
+                    return instance;
+                }
+                case ARRAY: {
+                    int size = in.readInt();
+                    List<Object> array = register(new ArrayList<>(size));
+                    for (int i = 0; i < size; i++) array.add(value());
+                    return array;
+                }
+                case FROZEN_ARRAY: {
+                    int index = objects.size();
+                    objects.add(null);
+                    Object[] elements = new Object[in.readInt()];
+                    for (int i = 0; i < elements.length; i++) elements[i] = value();
+                    FrozenArray array = new FrozenArray(elements);
+                    objects.set(index, array);
+                    return array;
+                }
+                case COLLECTION: {
+                    boolean isMap = in.readBoolean();
+                    boolean sealed = in.readBoolean();
+                    JSCollection collection = register(new JSCollection(isMap));
+                    int size = in.readInt();
+                    for (int i = 0; i < size; i++) {
+                        Object key = value();
+                        collection.table.put(key, isMap ? value() : null);
+                    }
+                    collection.sealed = sealed;
+                    return collection;
+                }
+                case TYPED_ARRAY: {
+                    JSTypedArray.Kind kind = JSTypedArray.Kind.values()[in.readByte()];
+                    boolean sealed = in.readBoolean();
+                    long length = in.readLong();
+                    if (length < 0) throw new IOException("Corrupt snapshot typed array.");
+                    JSTypedArray array = register(JSTypedArray.allocate(kind, length));
+                    for (long i = 0; i < length; i++) {
+                        array.set(i, kind == JSTypedArray.Kind.FLOAT64 ? in.readDouble() : in.readInt());
+                    }
+                    array.sealed = sealed;
+                    return array;
+                }
+            }
+            throw new IOException("Unknown value tag " + tag + ".");
+        }
+
+        Statement statement() throws IOException {
+            byte tag = in.readByte();
+            Statement stmt;
+            switch (tag) {
+                case NULL:
+                    return null;
+                case S_DECLARATION: {
+                    Statement declaration = (Statement) objects.get(in.readInt());
+                    in.readBoolean();
+                    return declaration;
+                }
+                case S_RETURN: {
+                    int position = in.readInt();
+                    stmt = new Statement.Return(position, expr());
+                    break;
+                }
+                case S_FUNCTION: {
+                    int index = objects.size();
+                    objects.add(null);
+                    int position = in.readInt();
+                    String name = string();
+                    boolean isAsync = in.readBoolean();
+                    boolean isGenerator = in.readBoolean();
+                    int count = in.readInt();
+                    List<Statement.Parameter> params = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) params.add(new Statement.Parameter(string(), in.readInt()));
+                    stmt = new Statement.Function(name, position, params, statements(), isAsync, isGenerator);
+                    objects.set(index, stmt);
+                    break;
+                }
+                case S_BLOCK:
+                    stmt = new Statement.Block(in.readInt(), statements());
+                    break;
+                case S_CLASS: {
+                    int position = in.readInt();
+                    String name = string();
+                    Expr.Variable superclass = (Expr.Variable) expr();
+                    List<Statement.Function> methods = new ArrayList<>();
+                    for (Statement method : statements()) methods.add((Statement.Function) method);
+                    stmt = new Statement.Class(name, position, superclass, methods);
+                    break;
+                }
+                case S_EXPRESSION:
+                    stmt = new Statement.Expression(expr());
+                    break;
+                case S_IF: {
+                    Expr condition = expr();
+                    Statement thenBranch = statement();
+                    stmt = new Statement.If(condition, thenBranch, statement());
+                    break;
+                }
+                case S_PRINT:
+                    stmt = new Statement.Print(expr());
+                    break;
+                case S_VAR: {
+                    int position = in.readInt();
+                    String name = string();
+                    stmt = new Statement.Var(name, position, expr());
+                    break;
+                }
+                case S_WHILE: {
+                    int position = in.readInt();
+                    Expr condition = expr();
+                    stmt = new Statement.While(position, condition, statement());
+                    break;
+                }
+                case S_FOR_OF: {
+                    int position = in.readInt();
+                    boolean assigns = in.readBoolean();
+                    Expr.Assign target = assigns ? (Expr.Assign) expr() : null;
+                    String name = assigns ? null : string();
+                    Expr iterable = expr();
+                    stmt = new Statement.ForOf(position, name, target, iterable, statement());
+                    break;
+                }
+                case S_TRY: {
+                    int position = in.readInt();
+                    List<Statement> body = statements();
+                    String catchName = null;
+                    List<Statement> catchBody = null;
+                    if (in.readBoolean()) {
+                        if (in.readBoolean()) catchName = string();
+                        catchBody = statements();
+                    }
+                    List<Statement> finallyBody = in.readBoolean() ? statements() : null;
+                    stmt = new Statement.Try(position, body, catchName, catchBody, finallyBody);
+                    break;
+                }
+                case S_THROW: {
+                    int position = in.readInt();
+                    stmt = new Statement.Throw(position, expr());
+                    break;
+                }
+                default:
+                    throw new IOException("Unknown statement tag " + tag + ".");
+            }
+            stmt.suspends = in.readBoolean();
+            return stmt;
+        }
+        private List<Statement> statements() throws IOException {
+            int count = in.readInt();
+            List<Statement> statements = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) statements.add(statement());
+            return statements;
+        }
+        private List<Expr> exprs() throws IOException {
+            int count = in.readInt();
+            List<Expr> exprs = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) exprs.add(expr());
+            return exprs;
+        }
+
+        Expr expr() throws IOException {
+            byte tag = in.readByte();
+            if (tag == NULL) return null;
+            if (tag == E_GROUPING) return new Expr.Grouping(expr());
+            if (tag == E_LITERAL) return new Expr.Literal(value());
+            if (tag == E_TERNARY) {
+                Expr first = expr();
+                Expr left = expr();
+                return new Expr.Ternary(first, left, expr());
+            }
+            int position = in.readInt();
+            switch (tag) {
+                case E_ASSIGN: {
+                    String name = string();
+                    int depth = in.readInt();
+                    Expr.Assign assign = new Expr.Assign(name, position, expr());
+                    assign.depth = depth;
+                    return assign;
+                }
+                case E_INC_DEC: {
+                    String name = string();
+                    TokenType operator = TOKEN_TYPES[in.readByte()];
+                    return new Expr.IncDec(name, operator, position, expr());
+                }
+                case E_ARRAY:
+                    return new Expr.Array(position, exprs());
+                case E_BINARY: {
+                    TokenType operator = TOKEN_TYPES[in.readByte()];
+                    Expr left = expr();
+                    return new Expr.Binary(left, operator, position, expr());
+                }
+                case E_CALL: {
+                    Expr callee = expr();
+                    return new Expr.Call(callee, position, exprs());
+                }
+                case E_GET: {
+                    String name = string();
+                    return new Expr.Get(expr(), name, position);
+                }
+                case E_ARRAY_GET: {
+                    Expr name = expr();
+                    return new Expr.ArrayGet(position, name, expr());
+                }
+                case E_ARRAY_SET: {
+                    Expr name = expr();
+                    Expr index = expr();
+                    return new Expr.ArraySet(position, name, index, expr());
+                }
+                case E_SET: {
+                    String name = string();
+                    Expr object = expr();
+                    return new Expr.Set(object, name, position, expr());
+                }
+                case E_THIS: {
+                    Expr.This expr = new Expr.This(position);
+                    expr.depth = in.readInt();
+                    return expr;
+                }
+                case E_SUPER: {
+                    Expr.Super expr = new Expr.Super(position, string());
+                    expr.depth = in.readInt();
+                    return expr;
+                }
+                case E_LOGICAL: {
+                    TokenType operator = TOKEN_TYPES[in.readByte()];
+                    Expr left = expr();
+                    return new Expr.Logical(left, operator, position, expr());
+                }
+                case E_UNARY: {
+                    TokenType operator = TOKEN_TYPES[in.readByte()];
+                    return new Expr.Unary(operator, position, expr());
+                }
+                case E_VARIABLE: {
+                    Expr.Variable expr = new Expr.Variable(string(), position);
+                    expr.depth = in.readInt();
+                    return expr;
+                }
+                case E_AWAIT:
+                    return new Expr.Await(position, expr());
+                case E_YIELD:
+                    return new Expr.Yield(position, expr());
+            }
+            throw new IOException("Unknown expression tag " + tag + ".");
+        }
+    }
+}
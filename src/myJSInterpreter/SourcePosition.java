@@ -0,0 +1,22 @@
+package myJSInterpreter;
+
+// Line and column packed into one int so AST nodes don't need to keep their Tokens around.
+// The line takes the upper 22 bits, read back unsigned, and the column the lower 10; only
+// lines past 4M and columns past 1023 are clamped.
+final class SourcePosition {
+    private static final int COLUMN_BITS = 10;
+    private static final int COLUMN_MASK = (1 << COLUMN_BITS) - 1;
+    private static final int MAX_LINE = (1 << (Integer.SIZE - COLUMN_BITS)) - 1;
+
+    private SourcePosition() {}
+
+    static int pack(int line, int column) {
+        return Math.min(line, MAX_LINE) << COLUMN_BITS | Math.min(column, COLUMN_MASK);
+    }
+    static int line(int position) {
+        return position >>> COLUMN_BITS;
+    }
+    static int column(int position) {
+        return position & COLUMN_MASK;
+    }
+}
@@ -13,10 +13,13 @@ public abstract class Statement {
         R visitPrintStmt(Print stmt);
         R visitVarStmt(Var stmt);
         R visitWhileStmt(While stmt);
+        R visitForOfStmt(ForOf stmt);
+        R visitTryStmt(Try stmt);
+        R visitThrowStmt(Throw stmt);
     }
     public static class Return extends Statement {
-        Return(Token keyword, Expr value) {
-           this.keyword = keyword;
+        Return(int position, Expr value) {
+           this.position = position;
            this.value = value;
         }
 
@@ -24,26 +27,43 @@ public abstract class Statement {
     <R> R accept(Visitor<R> visitor) {
         return visitor.visitReturnStmt(this);
     }
-        final Token keyword;
+        final int position;
         final Expr value;
     }
     public static class Function extends Statement {
-        Function(Token name, List<Token> params, List<Statement> body) {
+        Function(String name, int position, List<Parameter> params, List<Statement> body, boolean isAsync,
+                 boolean isGenerator) {
            this.name = name;
+           this.position = position;
            this.params = params;
            this.body = body;
+           this.isAsync = isAsync;
+           this.isGenerator = isGenerator;
         }
 
     @Override
     <R> R accept(Visitor<R> visitor) {
         return visitor.visitFunctionStmt(this);
     }
-        final Token name;
-        final List<Token> params;
+        final String name;
+        final int position;
+        final List<Parameter> params;
         final List<Statement> body;
+        final boolean isAsync;
+        final boolean isGenerator;
+    }
+    public static class Parameter {
+        Parameter(String name, int position) {
+           this.name = name;
+           this.position = position;
+        }
+
+        final String name;
+        final int position;
     }
     public static class Block extends Statement {
-        Block(List<Statement> statements) {
+        Block(int position, List<Statement> statements) {
+           this.position = position;
            this.statements = statements;
         }
 
@@ -51,11 +71,14 @@ public abstract class Statement {
     <R> R accept(Visitor<R> visitor) {
         return visitor.visitBlockStmt(this);
     }
+        final int position;
         final List<Statement> statements;
     }
     public static class Class extends Statement {
-        Class(Token name, List<Statement.Function> methods) {
+        Class(String name, int position, Expr.Variable superclass, List<Statement.Function> methods) {
            this.name = name;
+           this.position = position;
+           this.superclass = superclass;
            this.methods = methods;
         }
 
@@ -63,7 +86,9 @@ public abstract class Statement {
     <R> R accept(Visitor<R> visitor) {
         return visitor.visitClassStmt(this);
     }
-        final Token name;
+        final String name;
+        final int position;
+        final Expr.Variable superclass;
         final List<Statement.Function> methods;
     }
     public static class Expression extends Statement {
@@ -104,8 +129,9 @@ public abstract class Statement {
         final Expr expression;
     }
     public static class Var extends Statement {
-        Var(Token name, Expr initializer) {
+        Var(String name, int position, Expr initializer) {
            this.name = name;
+           this.position = position;
            this.initializer = initializer;
         }
 
@@ -113,11 +139,13 @@ public abstract class Statement {
     <R> R accept(Visitor<R> visitor) {
         return visitor.visitVarStmt(this);
     }
-        final Token name;
+        final String name;
+        final int position;
         final Expr initializer;
     }
     public static class While extends Statement {
-        While(Expr condition, Statement body) {
+        While(int position, Expr condition, Statement body) {
+           this.position = position;
            this.condition = condition;
            this.body = body;
         }
@@ -126,9 +154,68 @@ public abstract class Statement {
     <R> R accept(Visitor<R> visitor) {
         return visitor.visitWhileStmt(this);
     }
+        final int position;
         final Expr condition;
         final Statement body;
     }
+    // for (var name of iterable) declares the loop variable; for (name of iterable) assigns through
+    // target, an Assign whose value is never evaluated.
+    public static class ForOf extends Statement {
+        ForOf(int position, String name, Expr.Assign target, Expr iterable, Statement body) {
+           this.position = position;
+           this.name = name;
+           this.target = target;
+           this.iterable = iterable;
+           this.body = body;
+        }
+
+    @Override
+    <R> R accept(Visitor<R> visitor) {
+        return visitor.visitForOfStmt(this);
+    }
+        final int position;
+        final String name;
+        final Expr.Assign target;
+        final Expr iterable;
+        final Statement body;
+    }
+    // catchBody or finallyBody may be null, but not both; catchName is null for `catch { ... }`.
+    public static class Try extends Statement {
+        Try(int position, List<Statement> body, String catchName, List<Statement> catchBody,
+            List<Statement> finallyBody) {
+           this.position = position;
+           this.body = body;
+           this.catchName = catchName;
+           this.catchBody = catchBody;
+           this.finallyBody = finallyBody;
+        }
+
+    @Override
+    <R> R accept(Visitor<R> visitor) {
+        return visitor.visitTryStmt(this);
+    }
+        final int position;
+        final List<Statement> body;
+        final String catchName;
+        final List<Statement> catchBody;
+        final List<Statement> finallyBody;
+    }
+    public static class Throw extends Statement {
+        Throw(int position, Expr value) {
+           this.position = position;
+           this.value = value;
+        }
+
+    @Override
+    <R> R accept(Visitor<R> visitor) {
+        return visitor.visitThrowStmt(this);
+    }
+        final int position;
+        final Expr value;
+    }
+
+    // Set by the Resolver when an await or yield inside this statement (not inside a nested function) can suspend it.
+    boolean suspends;
 
     abstract <R> R accept(Visitor<R> visitor);
 }
@@ -0,0 +1,84 @@
+package myJSInterpreter;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Copies values between isolates. detach() runs on the sending thread and produces a graph that
+// no interpreter owns; attach() runs on the receiving thread and rebuilds instances against the
+// receiver's classes. Primitives and frozen arrays are passed through untouched.
+final class StructuredClone {
+    private static final class DetachedInstance {
+        final String className;
+        final List<String> names = new ArrayList<>();
+        final List<Object> values = new ArrayList<>();
+        DetachedInstance(String className) {
+            this.className = className;
+        }
+    }
+
+    private StructuredClone() {}
+
+    static Object detach(Interpreter interpreter, Object value) {
+        return detach(interpreter, value, new IdentityHashMap<>());
+    }
+    private static Object detach(Interpreter interpreter, Object value, Map<Object, Object> seen) {
+        if (value == null || value instanceof Double || value instanceof String
+                || value instanceof Boolean || value instanceof FrozenArray) {
+            return value;
+        }
+        Object copy = seen.get(value);
+        if (copy != null) return copy;
+        if (value instanceof List) {
+            List<?> array = (List<?>) value;
+            List<Object> detached = new ArrayList<>(array.size());
+            seen.put(value, detached);
+            for (Object element : array) {
+                detached.add(detach(interpreter, element, seen));
+            }
+            return detached;
+        }
+        if (value instanceof JSInstance) {
+            JSInstance instance = (JSInstance) value;
+            DetachedInstance detached = new DetachedInstance(instance.className());
+            seen.put(value, detached);
+            for (Map.Entry<String, Object> field : instance.fields().entrySet()) {
+                detached.names.add(field.getKey());
+                detached.values.add(detach(interpreter, field.getValue(), seen));
+            }
+            return detached;
+        }
+        throw interpreter.nativeError("Can't send " + value + " to another isolate.");
+    }
+
+    static Object attach(Interpreter interpreter, Object detached) {
+        return attach(interpreter, detached, new IdentityHashMap<>());
+    }
+    @SuppressWarnings("unchecked")
+    private static Object attach(Interpreter interpreter, Object value, Map<Object, Object> seen) {
+        if (value instanceof DetachedInstance) {
+            Object done = seen.get(value);
+            if (done != null) return done;
+            DetachedInstance detached = (DetachedInstance) value;
+            Object klass = interpreter.globalEnv.getAt(0, detached.className);
+            if (!(klass instanceof JSClass)) {
+                throw interpreter.nativeError("Class '" + detached.className + "' is not defined here.");
+            }
+            JSInstance instance = new JSInstance((JSClass) klass);
+            seen.put(value, instance);
+            for (int i = 0; i < detached.names.size(); i++) {
+                instance.set(detached.names.get(i), attach(interpreter, detached.values.get(i), seen));
+            }
+            return instance;
+        }
+        if (value instanceof ArrayList && seen.put(value, value) == null) {
+            // Detached arrays are fresh copies, so they are adopted in place.
+            List<Object> array = (List<Object>) value;
+            for (int i = 0; i < array.size(); i++) {
+                array.set(i, attach(interpreter, array.get(i), seen));
+            }
+        }
+        return value;
+    }
+}
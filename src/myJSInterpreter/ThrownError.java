@@ -0,0 +1,36 @@
+package myJSInterpreter;
+
+// A value raised by a throw statement or a rejected promise. The script frames it was raised in
+// are copied from the interpreter's call stack, which is only a few array copies, and turned
+// into text only if the error goes uncaught.
+final class ThrownError extends RuntimeError {
+    private static final int SHOWN_FRAMES = 32;
+    final Object value;
+    private final JSCallable[] callees;
+    private final int[] positions;
+
+    ThrownError(Interpreter interpreter, int position, Object value) {
+        super(position, interpreter.stringify(value));
+        this.value = value;
+        int depth = interpreter.callStack.depth();
+        this.callees = new JSCallable[depth];
+        this.positions = new int[depth];
+        interpreter.callStack.snapshot(callees, positions);
+    }
+
+    // Innermost frame first, each with the line it had reached; runaway recursion is cut short.
+    String stack() {
+        StringBuilder stack = new StringBuilder();
+        int line = line();
+        for (int i = callees.length - 1; i >= 0; i--) {
+            if (i >= callees.length - SHOWN_FRAMES) {
+                stack.append("\n    at ").append(CallStack.nameOf(callees[i])).append(" (line ").append(line).append(')');
+            }
+            line = SourcePosition.line(positions[i]);
+        }
+        if (callees.length > SHOWN_FRAMES) {
+            stack.append("\n    ... ").append(callees.length - SHOWN_FRAMES).append(" more");
+        }
+        return stack.append("\n    at <script> (line ").append(line).append(')').toString();
+    }
+}
@@ -5,11 +5,16 @@ public class Token {
     final String lexeme;
     final Object literal;
     final int line;
-    Token(TokenType type, String lexeme, Object literal, int line) {
+    final int column;
+    Token(TokenType type, String lexeme, Object literal, int line, int column) {
         this.type = type;
         this.lexeme = lexeme;
         this.literal = literal;
         this.line = line;
+        this.column = column;
+    }
+    int position() {
+        return SourcePosition.pack(line, column);
     }
     @Override
     public String toString() {
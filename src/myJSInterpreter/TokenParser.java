@@ -5,11 +5,23 @@ import static myJSInterpreter.TokenType.*;
 
 
 public class TokenParser {
-    private final List<Token> tokens;
+    private static final int WINDOW = 256;
+    private final TokenScanner scanner;
+    private final ErrorReporter reporter;
     private static class ParseError extends RuntimeException {}
+    // Tokens are pulled from the scanner a window at a time instead of materializing the whole list.
+    private final Token[] window = new Token[WINDOW];
+    private int count = 0;
     private int current = 0;
-    public TokenParser(List<Token> tokens) {
-        this.tokens = tokens;
+    private Token previous;
+    private long scanNanos = 0;
+    public TokenParser(TokenScanner scanner, ErrorReporter reporter) {
+        this.scanner = scanner;
+        this.reporter = reporter;
+    }
+    // Time spent inside the scanner so far; scanning is interleaved with parsing a window at a time.
+    long scanNanos() {
+        return scanNanos;
     }
     List<Statement> parse() {
         List<Statement> statements = new ArrayList<>();
@@ -28,56 +40,70 @@ public class TokenParser {
         }
     }
     private Statement varDeclaration() {
-        Token name = consume(IDENTIFIER, "Expect variable name.");
+        return varDeclaration(consume(IDENTIFIER, "Expect variable name."));
+    }
+    private Statement varDeclaration(Token name) {
         Expr initializer = null;
         if (match(EQUAL)) {
             initializer = expression();
         }
         consume(SEMICOLON, "Expect ';' after variable declaration.");
-        return new Statement.Var(name, initializer);
+        return new Statement.Var(name.lexeme, name.position(), initializer);
     }
 
 
     private Statement statement() {
         if(match(CLASS)) return classDeclaration();
         if (match(RETURN)) return returnStatement();
-        if (match(FUNCTION)) return function("function");
+        if (match(FUNCTION)) return function("function", false);
+        if (match(ASYNC)) {
+            consume(FUNCTION, "Expect 'function' after 'async'.");
+            return function("function", true);
+        }
         if (match(IF)) return ifStatement();
         if (match(FOR)) return forStatement();
         if(match(WHILE)) return whileStatement();
+        if (match(TRY)) return tryStatement();
+        if (match(THROW)) return throwStatement();
         if (match(PRINT)) return printStatement();
-        if(match(LEFT_BRACE)) return new Statement.Block(block());
+        if(match(LEFT_BRACE)) return new Statement.Block(previous().position(), block());
         return expressionStatement();
     }
 
     private Statement classDeclaration() {
         Token name = consume(IDENTIFIER, "Expect class name.");
+        Expr.Variable superclass = null;
+        if (match(EXTENDS)) {
+            Token parent = consume(IDENTIFIER, "Expect superclass name.");
+            superclass = new Expr.Variable(parent.lexeme, parent.position());
+        }
         consume(LEFT_BRACE, "Expect '{' before class body.");
         List<Statement.Function> methods = new ArrayList<>();
         while (!check(RIGHT_BRACE) && !isAtEnd()) {
-            methods.add(function("method"));
+            methods.add(function("method", match(ASYNC)));
         }
         consume(RIGHT_BRACE, "Expect '}' after class body.");
-        return new Statement.Class(name, methods);
+        return new Statement.Class(name.lexeme, name.position(), superclass, methods);
     }
 
-    private Statement.Function function(String kind) {
+    private Statement.Function function(String kind, boolean isAsync) {
+        boolean isGenerator = match(STAR);
         Token name = consume(IDENTIFIER, "Expect " + kind + " name.");
         consume(LEFT_PAREN, "Expect '(' after " + kind + " name.");
-        List<Token> parameters = new ArrayList<>();
+        List<Statement.Parameter> parameters = new ArrayList<>();
         if (!check(RIGHT_PAREN)) {
             do {
                 if (parameters.size() >= 255) {
                     error(peek(), "Can't have more than 255 parameters.");
                 }
-                parameters.add(
-                        consume(IDENTIFIER, "Expect parameter name."));
+                Token parameter = consume(IDENTIFIER, "Expect parameter name.");
+                parameters.add(new Statement.Parameter(parameter.lexeme, parameter.position()));
             } while (match(COMMA));
         }
         consume(RIGHT_PAREN, "Expect ')' after parameters.");
         consume(LEFT_BRACE, "Expect '{' before " + kind + " body.");
         List<Statement> body = block();
-        return new Statement.Function(name, parameters, body);
+        return new Statement.Function(name.lexeme, name.position(), parameters, body, isAsync, isGenerator);
     }
     private Statement returnStatement() {
         Token keyword = previous();
@@ -86,19 +112,59 @@ public class TokenParser {
             value = expression();
         }
         consume(SEMICOLON, "Expect ';' after return value.");
-        return new Statement.Return(keyword, value);
+        return new Statement.Return(keyword.position(), value);
+    }
+    private Statement tryStatement() {
+        int position = previous().position();
+        consume(LEFT_BRACE, "Expect '{' after 'try'.");
+        List<Statement> body = block();
+        String catchName = null;
+        List<Statement> catchBody = null;
+        List<Statement> finallyBody = null;
+        if (match(CATCH)) {
+            if (match(LEFT_PAREN)) {
+                catchName = consume(IDENTIFIER, "Expect catch parameter name.").lexeme;
+                consume(RIGHT_PAREN, "Expect ')' after catch parameter.");
+            }
+            consume(LEFT_BRACE, "Expect '{' before catch body.");
+            catchBody = block();
+        }
+        if (match(FINALLY)) {
+            consume(LEFT_BRACE, "Expect '{' after 'finally'.");
+            finallyBody = block();
+        }
+        if (catchBody == null && finallyBody == null) {
+            throw error(peek(), "Expect 'catch' or 'finally' after try block.");
+        }
+        return new Statement.Try(position, body, catchName, catchBody, finallyBody);
+    }
+    private Statement throwStatement() {
+        Token keyword = previous();
+        Expr value = expression();
+        consume(SEMICOLON, "Expect ';' after thrown value.");
+        return new Statement.Throw(keyword.position(), value);
     }
     private Statement forStatement() {
+        int position = previous().position();
         consume(LEFT_PAREN, "Expect '(' after 'for'.");
         Statement initializer;
         if (match(SEMICOLON)) {
             initializer = null;
         }
         else if (match(VAR)) {
-            initializer = varDeclaration();
+            Token name = consume(IDENTIFIER, "Expect variable name.");
+            if (matchOf()) return forOfStatement(position, name.lexeme, null);
+            initializer = varDeclaration(name);
         }
         else {
-            initializer = expressionStatement();
+            Expr expr = expression();
+            if (expr instanceof Expr.Variable && matchOf()) {
+                Expr.Variable variable = (Expr.Variable) expr;
+                return forOfStatement(position, null,
+                        new Expr.Assign(variable.name, variable.position, new Expr.Literal(null)));
+            }
+            consume(SEMICOLON, "Expect ';' after expression.");
+            initializer = new Statement.Expression(expr);
         }
         Expr condition = null;
         if (!check(SEMICOLON)) {
@@ -112,21 +178,33 @@ public class TokenParser {
         consume(RIGHT_PAREN, "Expect ')' after for clauses.");
         Statement body = statement();
         if (increment != null) {
-            body = new Statement.Block(Arrays.asList(body, new Statement.Expression(increment)));
+            body = new Statement.Block(position, Arrays.asList(body, new Statement.Expression(increment)));
         }
         if (condition == null) condition = new Expr.Literal(true);
-        body = new Statement.While(condition, body);
+        body = new Statement.While(position, condition, body);
         if (initializer != null) {
-            body = new Statement.Block(Arrays.asList(initializer, body));
+            body = new Statement.Block(position, Arrays.asList(initializer, body));
         }
         return body;
     }
+    // 'of' is an ordinary identifier everywhere else.
+    private boolean matchOf() {
+        if (!check(IDENTIFIER) || !peek().lexeme.equals("of")) return false;
+        advance();
+        return true;
+    }
+    private Statement forOfStatement(int position, String name, Expr.Assign target) {
+        Expr iterable = expression();
+        consume(RIGHT_PAREN, "Expect ')' after for-of clause.");
+        return new Statement.ForOf(position, name, target, iterable, statement());
+    }
     private Statement whileStatement() {
+        int position = previous().position();
         consume(LEFT_PAREN, "Expect '(' after 'while'.");
         Expr condition = expression();
         consume(RIGHT_PAREN, "Expect ')' after condition.");
         Statement body = statement();
-        return new Statement.While(condition, body);
+        return new Statement.While(position, condition, body);
     }
     private Statement ifStatement() {
         consume(LEFT_PAREN, "Expect '(' after 'if'.");
@@ -161,17 +239,26 @@ public class TokenParser {
         return assignment();
     }
     private Expr assignment() {
+        if (match(YIELD)) {
+            int position = previous().position();
+            if (check(SEMICOLON) || check(RIGHT_PAREN)) return new Expr.Yield(position, null);
+            return new Expr.Yield(position, assignment());
+        }
         Expr expr = ternary();
         if (match(EQUAL)) {
             Token equals = previous();
             Expr value = assignment();
             if (expr instanceof Expr.Variable) {
-                Token name = ((Expr.Variable)expr).name;
-                return new Expr.Assign(name, value);
+                Expr.Variable variable = (Expr.Variable)expr;
+                return new Expr.Assign(variable.name, variable.position, value);
             }
             else if (expr instanceof Expr.Get) {
                 Expr.Get get = (Expr.Get)expr;
-                return new Expr.Set(get.object, get.name, value);
+                return new Expr.Set(get.object, get.name, get.position, value);
+            }
+            else if (expr instanceof Expr.ArrayGet) {
+                Expr.ArrayGet get = (Expr.ArrayGet)expr;
+                return new Expr.ArraySet(get.position, get.name, get.index, value);
             }
             error(equals, "Invalid assignment target.");
         }
@@ -180,16 +267,16 @@ public class TokenParser {
             Token operator = previous();
             Expr value = assignment();
             if (expr instanceof Expr.Variable) {
-                Token name = ((Expr.Variable)expr).name;
-                return new Expr.IncDec(name, operator, value);
+                String name = ((Expr.Variable)expr).name;
+                return new Expr.IncDec(name, operator.type, operator.position(), value);
             }
             error(operator, "Invalid assignment target.");
         }
         else if(match(PLUSPLUS) || match(MINUSMINUS)) {
             Token operator = previous();
             if (expr instanceof Expr.Variable) {
-                Token name = ((Expr.Variable)expr).name;
-                return new Expr.IncDec(name, operator, new Expr.Literal(1.0));
+                String name = ((Expr.Variable)expr).name;
+                return new Expr.IncDec(name, operator.type, operator.position(), new Expr.Literal(1.0));
             }
             error(operator, "Invalid assignment target.");
         }
@@ -214,7 +301,7 @@ public class TokenParser {
         while(match(AND, OR)) {
             Token operator = previous();
             Expr right = expression();
-            expr = new Expr.Logical(expr, operator, right);
+            expr = new Expr.Logical(expr, operator.type, operator.position(), right);
         }
         return expr;
     }
@@ -223,7 +310,7 @@ public class TokenParser {
         while (match(BANG_EQUAL, EQUAL_EQUAL)) {
             Token operator = previous();
             Expr right = comparison();
-            expr = new Expr.Binary(expr, operator, right);
+            expr = new Expr.Binary(expr, operator.type, operator.position(), right);
         }
         return expr;
     }
@@ -232,7 +319,7 @@ public class TokenParser {
         while (match(GREATER, GREATER_EQUAL, LESS, LESS_EQUAL)) {
             Token operator = previous();
             Expr right = term();
-            expr = new Expr.Binary(expr, operator, right);
+            expr = new Expr.Binary(expr, operator.type, operator.position(), right);
         }
         return expr;
     }
@@ -242,7 +329,7 @@ public class TokenParser {
         while (match(MINUS, PLUS)) {
             Token operator = previous();
             Expr right = factor();
-            expr = new Expr.Binary(expr, operator, right);
+            expr = new Expr.Binary(expr, operator.type, operator.position(), right);
         }
         return expr;
     }
@@ -251,7 +338,7 @@ public class TokenParser {
         while (match(SLASH, STAR, MOD)) {
             Token operator = previous();
             Expr right = unary();
-            expr = new Expr.Binary(expr, operator, right);
+            expr = new Expr.Binary(expr, operator.type, operator.position(), right);
         }
         return expr;
     }
@@ -259,7 +346,11 @@ public class TokenParser {
         if (match(EMARK, MINUS)) {
             Token operator = previous();
             Expr right = unary();
-            return new Expr.Unary(operator, right);
+            return new Expr.Unary(operator.type, operator.position(), right);
+        }
+        if (match(AWAIT)) {
+            int position = previous().position();
+            return new Expr.Await(position, unary());
         }
         return call();
     }
@@ -270,14 +361,15 @@ public class TokenParser {
                 expr = finishCall(expr);
             }
             else if (match(DOT)) {
-                Token name = consume(IDENTIFIER,
+                // Keywords are fine as property names, as in promise.catch(...).
+                Token name = TokenScanner.isKeyword(peek().type) ? advance() : consume(IDENTIFIER,
                         "Expect property name after '.'.");
-                expr = new Expr.Get(expr, name);
+                expr = new Expr.Get(expr, name.lexeme, name.position());
             }
             else if(match(LEFT_BRACKET)) {
                 Expr index = expression();
                 consume(RIGHT_BRACKET, "Expect ]");
-                expr = new Expr.ArrayGet(previous(), expr , index);
+                expr = new Expr.ArrayGet(previous().position(), expr , index);
             }
             else {
                 break;
@@ -286,7 +378,13 @@ public class TokenParser {
         return expr;
     }
     private Expr primary() {
-        if (match(THIS)) return new Expr.This(previous());
+        if (match(THIS)) return new Expr.This(previous().position());
+        if (match(SUPER)) {
+            int position = previous().position();
+            if (check(LEFT_PAREN)) return new Expr.Super(position, "constructor");
+            consume(DOT, "Expect '.' or '(' after 'super'.");
+            return new Expr.Super(position, consume(IDENTIFIER, "Expect superclass method name.").lexeme);
+        }
         if (match(FALSE)) return new Expr.Literal(false);
         if (match(TRUE)) return new Expr.Literal(true);
         if (match(NIL)) return new Expr.Literal(null);
@@ -294,7 +392,7 @@ public class TokenParser {
             return new Expr.Literal(previous().literal);
         }
         if (match(IDENTIFIER)) {
-            return new Expr.Variable(previous());
+            return new Expr.Variable(previous().lexeme, previous().position());
         }
         if (match(LEFT_PAREN)) {
             Expr expr = expression();
@@ -302,9 +400,10 @@ public class TokenParser {
             return new Expr.Grouping(expr);
         }
         if (match(LEFT_BRACKET)) {
+            int position = previous().position();
             List<Expr> exprs = new ArrayList<>();
             if(match(RIGHT_BRACKET)) {
-                return new Expr.Array(exprs);
+                return new Expr.Array(position, exprs);
             }
             else {
                 do {
@@ -312,7 +411,7 @@ public class TokenParser {
                 } while (match(COMMA));  // Allow comma between expressions
                 consume(RIGHT_BRACKET, "Expect ']' after array literal.");
             }
-            return new Expr.Array(exprs);
+            return new Expr.Array(position, exprs);
         }
 
         throw error(peek(), "Expect expression.");
@@ -328,7 +427,7 @@ public class TokenParser {
             } while (match(COMMA));
         }
         Token paren = consume(RIGHT_PAREN, "Expect ')' after arguments.");
-        return new Expr.Call(callee, paren, arguments);
+        return new Expr.Call(callee, paren.position(), arguments);
     }
     private boolean match(TokenType... types) {
         for (TokenType type : types) {
@@ -344,17 +443,26 @@ public class TokenParser {
         return peek().type == type;
     }
     private Token advance() {
-        if (!isAtEnd()) current++;
+        if (!isAtEnd()) {
+            previous = peek();
+            current++;
+        }
         return previous();
     }
     private boolean isAtEnd() {
         return peek().type == EOF;
     }
     private Token peek() {
-        return tokens.get(current);
+        if (current == count) {
+            long start = System.nanoTime();
+            count = scanner.scanBatch(window);
+            scanNanos += System.nanoTime() - start;
+            current = 0;
+        }
+        return window[current];
     }
     private Token previous() {
-        return tokens.get(current - 1);
+        return previous;
     }
     private Token consume(TokenType type, String message) {
         if (check(type)) {
@@ -363,7 +471,7 @@ public class TokenParser {
         throw error(peek(), message);
     }
     private ParseError error(Token token, String message) {
-        JavaScript.error(token, message);
+        reporter.error(token, message);
         return new ParseError();
     }
     private void synchronize() {
@@ -372,6 +480,7 @@ public class TokenParser {
             if (previous().type == SEMICOLON) return;
             switch (peek().type) {
                 case CLASS:
+                case ASYNC:
                 case FUNCTION:
                 case VAR:
                 case FOR:
@@ -379,6 +488,8 @@ public class TokenParser {
                 case WHILE:
                 case PRINT:
                 case RETURN:
+                case TRY:
+                case THROW:
                     return;
             }
             advance();
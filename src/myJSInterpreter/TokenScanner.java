@@ -1,7 +1,5 @@
 package myJSInterpreter;
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import static myJSInterpreter.TokenType.*;
 
@@ -10,7 +8,11 @@ public class TokenScanner {
     private static final Map<String, TokenType> keywords;
     static {
         keywords = new HashMap<>();
+        keywords.put("async", ASYNC);
+        keywords.put("await", AWAIT);
+        keywords.put("yield", YIELD);
         keywords.put("class", CLASS);
+        keywords.put("extends", EXTENDS);
         keywords.put("else", ELSE);
         keywords.put("false", FALSE);
         keywords.put("for", FOR);
@@ -24,24 +26,58 @@ public class TokenScanner {
         keywords.put("true", TRUE);
         keywords.put("var", VAR);
         keywords.put("while", WHILE);
+        keywords.put("try", TRY);
+        keywords.put("catch", CATCH);
+        keywords.put("finally", FINALLY);
+        keywords.put("throw", THROW);
+    }
+    static boolean isKeyword(TokenType type) {
+        return keywords.containsValue(type);
     }
 
     private final String source;
-    private final List<Token> tokens = new ArrayList<>();
+    private final ErrorReporter reporter;
+    private final int end;
     private int start = 0;
     private int current = 0;
     private int line = 1;
+    private int lineStart = 0;
+    private int startColumn = 1;
+    private Token next;
 
-    public TokenScanner(String source) {
+    public TokenScanner(String source, ErrorReporter reporter) {
+        this(source, 0, source.length(), 1, reporter);
+    }
+    TokenScanner(String source, int from, int to, int line, ErrorReporter reporter) {
         this.source = source;
+        this.reporter = reporter;
+        this.start = from;
+        this.current = from;
+        this.end = to;
+        this.line = line;
+        this.lineStart = from;
+    }
+    int scanBatch(Token[] into) {
+        int count = 0;
+        while (count < into.length) {
+            Token token = nextToken();
+            into[count++] = token;
+            if (token.type == EOF) break;
+        }
+        return count;
     }
-    List<Token> scanTokens() {
-        while(!isAtEnd()) {
+    Token nextToken() {
+        while (next == null && !isAtEnd()) {
             start = current;
+            startColumn = start - lineStart + 1;
             scanToken();
         }
-        tokens.add(new Token(EOF, "", null, line));
-        return tokens;
+        if (next == null) {
+            return new Token(EOF, "", null, line, current - lineStart + 1);
+        }
+        Token token = next;
+        next = null;
+        return token;
     }
     private void scanToken() {
         char c = advance();
@@ -115,6 +151,7 @@ public class TokenScanner {
                 break;
             case '\n':
                 line++;
+                lineStart = current;
                 break;
             case '"':
                 string();
@@ -134,7 +171,7 @@ public class TokenScanner {
                     identifier();
                 }
                 else {
-                    JavaScript.error(line, "Unexpected character '" + c + "'");
+                    reporter.error(line, "Unexpected character '" + c + "'");
                 }
                 break;
         }
@@ -143,8 +180,11 @@ public class TokenScanner {
         while (isAlphaNumeric(peek())) advance();
         String text = source.substring(start, current);
         TokenType type = keywords.get(text);
-        if (type == null) type = IDENTIFIER;
-        addToken(type);
+        if (type == null) {
+            addToken(IDENTIFIER, text.intern(), null);
+        } else {
+            addToken(type, text, null);
+        }
     }
     private boolean isAlpha(char c) {
         return (c >= 'a' && c <= 'z') ||
@@ -166,24 +206,26 @@ public class TokenScanner {
         addToken(NUMBER, Double.parseDouble(source.substring(start, current)));
     }
     private char peekNext() {
-        if(current + 1 >= source.length()) return '\0';
+        if(current + 1 >= end) return '\0';
         return source.charAt(current + 1);
     }
     private void string() {
+        int startLine = line;
         while(peek() != '"' && !isAtEnd()) {
             if(peek() == '\n') {
                 line++;
+                lineStart = current + 1;
             }
             advance();
         }
         if (isAtEnd()) {
-            JavaScript.error(line, "Unterminated string.");
+            reporter.error(line, "Unterminated string.");
             return;
         }
         advance();
 
         String value = source.substring(start + 1, current - 1);
-        addToken(STRING, value);
+        next = new Token(STRING, source.substring(start, current), value, startLine, startColumn);
 
     }
     private char peek() {
@@ -197,7 +239,7 @@ public class TokenScanner {
         return true;
     }
     private boolean isAtEnd() {
-        return current >= source.length();
+        return current >= end;
     }
     private char advance() {
         return source.charAt(current++);
@@ -206,7 +248,9 @@ public class TokenScanner {
         addToken(type, null);
     }
     private void addToken(TokenType type, Object literal) {
-        String text = source.substring(start, current);
-        tokens.add(new Token(type, text, literal, line));
+        addToken(type, source.substring(start, current), literal);
+    }
+    private void addToken(TokenType type, String text, Object literal) {
+        next = new Token(type, text, literal, line, startColumn);
     }
 }
@@ -17,7 +17,9 @@ public enum TokenType {
     // Literals.
     IDENTIFIER, STRING, NUMBER,
     // Keywords.
-    AND, CLASS, ELSE, FALSE, FUNCTION, FOR, IF, NIL, OR,
+    AND, CLASS, ELSE, EXTENDS, FALSE, FUNCTION, FOR, IF, NIL, OR,
     PRINT, RETURN, SUPER, THIS, TRUE, VAR, WHILE,
+    TRY, CATCH, FINALLY, THROW,
+    ASYNC, AWAIT, YIELD,
     EOF
 }